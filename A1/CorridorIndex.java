@@ -0,0 +1,156 @@
+import java.util.*;
+
+// Segment tree over a Question2 corridor answering best travel time for any sub-range.
+//
+// Leaf i stores the min-plus matrix for entering segment i; every inner node stores the
+// product of its children in corridor order. A range [l, r] starts on segment l with its
+// own road times and applies the product of leaves l + 1 .. r, so queries and point
+// updates both touch O(log n) nodes. The root always holds the whole corridor, so the
+// current optimum is read in O(1) after each update; bursts of updates from a live feed
+// can be applied together so shared ancestors are recomputed once. Queries may run
+// concurrently with each other, but not with updates.
+public class CorridorIndex {
+    public static final int TUEN_MUN = 0;
+    public static final int CASTLE_PEAK = 1;
+
+    private final int n;
+    private final int leaves;
+    private final long switchCost;
+    private final long[] tunMun;
+    private final long[] castlePeak;
+    private final long[] tree;
+
+    public CorridorIndex(int[] tunMun, int[] castlePeak, int segments, long switchCost) {
+        if (segments < 1 || segments > tunMun.length || segments > castlePeak.length) {
+            throw new IllegalArgumentException("Need " + segments + " segments on both roads");
+        }
+        this.n = segments;
+        this.switchCost = switchCost;
+        this.tunMun = new long[n];
+        this.castlePeak = new long[n];
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        this.leaves = size;
+        this.tree = new long[8 * size];
+        for (int i = 0; i < size; i++) {
+            if (i < n) {
+                this.tunMun[i] = tunMun[i];
+                this.castlePeak[i] = castlePeak[i];
+            }
+            // Leaf 0 is never entered from a previous segment, so it stays neutral.
+            if (i == 0 || i >= n) {
+                MinPlus.identity(tree, 4 * (size + i));
+            } else {
+                MinPlus.segment(tree, 4 * (size + i), switchCost, tunMun[i], castlePeak[i]);
+            }
+        }
+        for (int node = size - 1; node >= 1; node--) {
+            MinPlus.multiply(tree, 8 * node, tree, 8 * node + 4, tree, 4 * node);
+        }
+    }
+
+    public int segments() {
+        return n;
+    }
+
+    // Best time to travel segments l..r inclusive, starting on either road.
+    public long query(int l, int r) {
+        if (l < 0 || r >= n || l > r) {
+            throw new IndexOutOfBoundsException("Range [" + l + ", " + r + "] outside 0.." + (n - 1));
+        }
+        // Per-call scratch so concurrent queries do not share state.
+        long[] left = new long[4];
+        long[] right = new long[4];
+        MinPlus.identity(left, 0);
+        MinPlus.identity(right, 0);
+        int lo = l + 1 + leaves;
+        int hi = r + 1 + leaves;
+        while (lo < hi) {
+            if ((lo & 1) == 1) {
+                MinPlus.multiply(left, 0, tree, 4 * lo, left, 0);
+                lo++;
+            }
+            if ((hi & 1) == 1) {
+                hi--;
+                MinPlus.multiply(tree, 4 * hi, right, 0, right, 0);
+            }
+            lo >>= 1;
+            hi >>= 1;
+        }
+        MinPlus.multiply(left, 0, right, 0, left, 0);
+        return MinPlus.finish(tunMun[l], castlePeak[l], left, 0);
+    }
+
+    // Best time over the whole corridor, from the root product.
+    public long best() {
+        return MinPlus.finish(tunMun[0], castlePeak[0], tree, 4);
+    }
+
+    // Sets the time of segment i on the given road.
+    public void update(int i, int road, long time) {
+        if (setLeaf(i, road, time)) {
+            for (int node = (leaves + i) >> 1; node >= 1; node >>= 1) {
+                MinPlus.multiply(tree, 8 * node, tree, 8 * node + 4, tree, 4 * node);
+            }
+        }
+    }
+
+    // Applies count updates (segment[k] on road[k] becomes time[k]) and then recomputes each
+    // affected inner node once, level by level. The caller's arrays are left unchanged, and
+    // every update is checked before the first is applied, so a bad entry leaves the index
+    // untouched.
+    public void updateAll(int[] segment, int[] road, long[] time, int count) {
+        for (int k = 0; k < count; k++) {
+            checkLeaf(segment[k], road[k]);
+        }
+        for (int k = 0; k < count; k++) {
+            setLeaf(segment[k], road[k], time[k]);
+        }
+        int[] nodes = Arrays.copyOf(segment, count);
+        Arrays.sort(nodes);
+        int m = 0;
+        for (int k = 0; k < count; k++) {
+            if (nodes[k] > 0) {
+                nodes[m++] = leaves + nodes[k];
+            }
+        }
+        while (m > 0 && nodes[0] > 1) {
+            int parents = 0;
+            for (int k = 0; k < m; k++) {
+                int parent = nodes[k] >> 1;
+                if (parents == 0 || nodes[parents - 1] != parent) {
+                    nodes[parents++] = parent;
+                    MinPlus.multiply(tree, 8 * parent, tree, 8 * parent + 4, tree, 4 * parent);
+                }
+            }
+            m = parents;
+        }
+    }
+
+    // Updates the stored time and leaf matrix; returns false for segment 0, whose leaf is
+    // never used.
+    private boolean setLeaf(int i, int road, long time) {
+        checkLeaf(i, road);
+        if (road == TUEN_MUN) {
+            tunMun[i] = time;
+        } else {
+            castlePeak[i] = time;
+        }
+        if (i == 0) {
+            return false;
+        }
+        MinPlus.segment(tree, 4 * (leaves + i), switchCost, tunMun[i], castlePeak[i]);
+        return true;
+    }
+
+    private void checkLeaf(int i, int road) {
+        if (i < 0 || i >= n) {
+            throw new IndexOutOfBoundsException("Segment " + i + " outside 0.." + (n - 1));
+        }
+        if (road != TUEN_MUN && road != CASTLE_PEAK) {
+            throw new IllegalArgumentException("Unknown road " + road);
+        }
+    }
+}
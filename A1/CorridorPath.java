@@ -0,0 +1,116 @@
+import java.util.*;
+
+// Optimal Question2 route with the lane taken on every segment.
+//
+// The forward pass records, for each segment and lane, one bit saying whether the best way
+// onto that lane came from the other road. Reconstruction walks those bits backwards from
+// the cheaper finishing lane and stores the chosen lane per segment in a second bitset, so
+// the whole route costs about 3n/8 bytes on top of the input.
+public class CorridorPath {
+    public static final int TUEN_MUN = 0;
+    public static final int CASTLE_PEAK = 1;
+
+    private final long totalTime;
+    private final int segments;
+    private final long[] lanes;
+
+    private CorridorPath(long totalTime, int segments, long[] lanes) {
+        this.totalTime = totalTime;
+        this.segments = segments;
+        this.lanes = lanes;
+    }
+
+    // Solves segments 0..x inclusive, matching Question2.minimumTime. Ties keep the current
+    // road.
+    public static CorridorPath solve(int[] tunMun, int[] castlePeak, int x, long switchCost) {
+        int n = x + 1;
+        long[] switched = new long[(int) ((2L * n + 63) >>> 6)];
+
+        long dp1 = tunMun[0];
+        long dp2 = castlePeak[0];
+        for (int i = 1; i < n; i++) {
+            long switchToTuenMun = dp2 + switchCost;
+            long switchToCastlePeak = dp1 + switchCost;
+            long next1;
+            long next2;
+            if (switchToTuenMun < dp1) {
+                next1 = switchToTuenMun + tunMun[i];
+                setBit(switched, 2L * i + TUEN_MUN);
+            } else {
+                next1 = dp1 + tunMun[i];
+            }
+            if (switchToCastlePeak < dp2) {
+                next2 = switchToCastlePeak + castlePeak[i];
+                setBit(switched, 2L * i + CASTLE_PEAK);
+            } else {
+                next2 = dp2 + castlePeak[i];
+            }
+            dp1 = next1;
+            dp2 = next2;
+        }
+
+        long[] lanes = new long[(n + 63) >>> 6];
+        int lane = dp1 <= dp2 ? TUEN_MUN : CASTLE_PEAK;
+        for (int i = n - 1; i >= 0; i--) {
+            if (lane == CASTLE_PEAK) {
+                setBit(lanes, i);
+            }
+            if (i > 0 && getBit(switched, 2L * i + lane)) {
+                lane ^= 1;
+            }
+        }
+        return new CorridorPath(Math.min(dp1, dp2), n, lanes);
+    }
+
+    public long totalTime() {
+        return totalTime;
+    }
+
+    public int segments() {
+        return segments;
+    }
+
+    public int laneAt(int i) {
+        if (i < 0 || i >= segments) {
+            throw new IndexOutOfBoundsException("Segment " + i + " outside 0.." + (segments - 1));
+        }
+        return getBit(lanes, i) ? CASTLE_PEAK : TUEN_MUN;
+    }
+
+    // Segments whose lane differs from the previous segment's.
+    public int[] switchPoints() {
+        int count = 0;
+        for (int i = 1; i < segments; i++) {
+            if (getBit(lanes, i) != getBit(lanes, i - 1)) {
+                count++;
+            }
+        }
+        int[] points = new int[count];
+        count = 0;
+        for (int i = 1; i < segments; i++) {
+            if (getBit(lanes, i) != getBit(lanes, i - 1)) {
+                points[count++] = i;
+            }
+        }
+        return points;
+    }
+
+    // One letter per segment: T for Tuen Mun Road, C for Castle Peak Road.
+    public String laneString() {
+        StringBuilder sb = new StringBuilder(segments);
+        for (int i = 0; i < segments; i++) {
+            sb.append(getBit(lanes, i) ? 'C' : 'T');
+        }
+        return sb.toString();
+    }
+
+    // Bit indices are long: the switch bitset holds 2n bits, which passes int range once n
+    // exceeds 2^30.
+    private static void setBit(long[] bits, long i) {
+        bits[(int) (i >>> 6)] |= 1L << i;
+    }
+
+    private static boolean getBit(long[] bits, long i) {
+        return (bits[(int) (i >>> 6)] & (1L << i)) != 0;
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.*;
+
+// Streams a trip file through the fare rules one journey at a time.
+// Input, one journey per line:
+//   cardId balance route1 comCode1 fall1 route2 comCode2 fall2
+// Output, one line per journey:
+//   cardId remainingBalance
+// Tokens are matched as raw bytes, so a journey is settled without creating any objects.
+public class FareBatch {
+    static final int BUFFER_SIZE = 1 << 16;
+
+    public static long run(String inPath, String outPath, FareRules rules) throws IOException {
+        try (InputStream in = new FileInputStream(inPath);
+             OutputStream out = new FileOutputStream(outPath)) {
+            return run(in, out, rules);
+        }
+    }
+
+    public static long run(InputStream in, OutputStream out, FareRules rules) throws IOException {
+        FastScanner scanner = new FastScanner(in, BUFFER_SIZE);
+        BufferedOutputStream writer = new BufferedOutputStream(out, BUFFER_SIZE);
+        byte[] cardId = new byte[32];
+        byte[] digits = new byte[20];
+        long journeys = 0;
+        while (scanner.hasNext()) {
+            if (scanner.lineEnded()) {
+                continue;
+            }
+            int cardLen = scanner.nextToken();
+            if (cardLen > cardId.length) {
+                cardId = new byte[cardLen];
+            }
+            System.arraycopy(scanner.tokenBytes(), 0, cardId, 0, cardLen);
+
+            if (scanner.lineEnded()) {
+                continue;
+            }
+            int balance = scanner.nextInt();
+            if (scanner.lineEnded()) {
+                continue;
+            }
+            scanner.nextToken();
+            int class1 = rules.routeClass(scanner.tokenBytes()[0]);
+            if (scanner.lineEnded()) {
+                continue;
+            }
+            int comLen1 = scanner.nextToken();
+            int op1 = rules.operatorId(scanner.tokenBytes(), comLen1);
+            if (scanner.lineEnded()) {
+                continue;
+            }
+            int fall1 = scanner.nextInt();
+            if (scanner.lineEnded()) {
+                continue;
+            }
+            scanner.nextToken();
+            int class2 = rules.routeClass(scanner.tokenBytes()[0]);
+            if (scanner.lineEnded()) {
+                continue;
+            }
+            int comLen2 = scanner.nextToken();
+            int op2 = rules.operatorId(scanner.tokenBytes(), comLen2);
+            if (scanner.lineEnded()) {
+                continue;
+            }
+            int fall2 = scanner.nextInt();
+            scanner.skipLine();
+
+            int result = rules.apply(balance, rules.outcome(op1, op2, class1, class2), fall1, fall2);
+            writer.write(cardId, 0, cardLen);
+            writer.write(' ');
+            writeLong(writer, result, digits);
+            writer.write('\n');
+            journeys++;
+        }
+        writer.flush();
+        return journeys;
+    }
+
+    // Writes the decimal digits of value using the caller's scratch array (at least 20 bytes).
+    static void writeLong(OutputStream out, long value, byte[] digits) throws IOException {
+        if (value < 0) {
+            out.write('-');
+        }
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        out.write(digits, i, digits.length - i);
+    }
+}
@@ -0,0 +1,290 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Thread-safe card balance ledger. Cards are spread over lock stripes; each stripe owns a
+// small open-addressing table of primitive keys and balances, so concurrent debits on
+// different cards almost never contend and no boxed Integer is created per update.
+public class FareLedger {
+    static final long EMPTY = Long.MIN_VALUE;
+    // Returned by settle for a card with no opening balance; outside the int balance range.
+    public static final long UNKNOWN_CARD = Long.MIN_VALUE;
+    private static final int CHUNK = 1024;
+    private static final String[] END = new String[0];
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final FareRules rules;
+
+    public FareLedger() {
+        this(Runtime.getRuntime().availableProcessors() * 8, FareRules.DEFAULT);
+    }
+
+    public FareLedger(int concurrency, FareRules rules) {
+        this.rules = rules;
+        int n = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeMask = n - 1;
+    }
+
+    public void open(long cardId, int balance) {
+        Stripe s = stripeFor(cardId);
+        synchronized (s) {
+            s.put(cardId, balance);
+        }
+    }
+
+    public boolean contains(long cardId) {
+        Stripe s = stripeFor(cardId);
+        synchronized (s) {
+            return s.indexOf(cardId) >= 0;
+        }
+    }
+
+    public int balance(long cardId) {
+        Stripe s = stripeFor(cardId);
+        synchronized (s) {
+            int i = s.indexOf(cardId);
+            if (i < 0) {
+                throw new IllegalArgumentException("Unknown card " + cardId);
+            }
+            return s.balances[i];
+        }
+    }
+
+    // Settles the second leg of a journey against the card's balance using the
+    // fare rules and returns the new balance, or UNKNOWN_CARD if the card was never opened.
+    public long settle(long cardId, String route1, String comCode1, int fall1,
+                       String route2, String comCode2, int fall2) {
+        Stripe s = stripeFor(cardId);
+        synchronized (s) {
+            int i = s.indexOf(cardId);
+            if (i < 0) {
+                return UNKNOWN_CARD;
+            }
+            int updated = rules.settle(s.balances[i], route1, comCode1, fall1, route2, comCode2, fall2);
+            s.balances[i] = updated;
+            return updated;
+        }
+    }
+
+    public long size() {
+        long total = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                total += s.size;
+            }
+        }
+        return total;
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                for (int i = 0; i < s.keys.length; i++) {
+                    if (s.keys[i] != EMPTY) {
+                        writer.write(Long.toString(s.keys[i]));
+                        writer.write(' ');
+                        writer.write(Integer.toString(s.balances[i]));
+                        writer.write('\n');
+                    }
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private Stripe stripeFor(long cardId) {
+        return stripes[(int) (mix(cardId) >>> 40) & stripeMask];
+    }
+
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    // Loads "cardId balance" lines, settles "cardId route1 comCode1 fall1 route2 comCode2 fall2"
+    // lines on the given number of worker threads, and writes the final balances.
+    public static long run(String balancesPath, String tripsPath, String outPath, int threads)
+            throws IOException, InterruptedException {
+        return run(balancesPath, tripsPath, outPath, FareRules.DEFAULT, threads);
+    }
+
+    public static long run(String balancesPath, String tripsPath, String outPath, FareRules rules, int threads)
+            throws IOException, InterruptedException {
+        FareLedger ledger = new FareLedger(threads * 8, rules);
+        try (BufferedReader reader = new BufferedReader(new FileReader(balancesPath), FareBatch.BUFFER_SIZE)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                StringTokenizer st = new StringTokenizer(line);
+                if (st.countTokens() >= 2) {
+                    ledger.open(Long.parseLong(st.nextToken()), Integer.parseInt(st.nextToken()));
+                }
+            }
+        }
+
+        // Each card is routed to one fixed worker so its journeys settle in file order;
+        // settlement is order dependent because a negative balance stops further debits.
+        // Bounded queues keep memory flat: the reader blocks when a worker falls behind.
+        List<BlockingQueue<String[]>> queues = new ArrayList<>();
+        List<Future<Long>> workers = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long journeys = 0;
+        try {
+            for (int w = 0; w < threads; w++) {
+                BlockingQueue<String[]> queue = new ArrayBlockingQueue<>(4);
+                queues.add(queue);
+                workers.add(pool.submit(() -> drain(queue, ledger)));
+            }
+            try (BufferedReader reader = new BufferedReader(new FileReader(tripsPath), FareBatch.BUFFER_SIZE)) {
+                String[][] chunks = new String[threads][CHUNK];
+                int[] counts = new int[threads];
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // Only the leading card id is scanned here; workers do the full parse.
+                    int w = (int) ((mix(leadingNumber(line)) >>> 1) % threads);
+                    chunks[w][counts[w]++] = line;
+                    if (counts[w] == CHUNK) {
+                        hand(queues.get(w), workers.get(w), chunks[w]);
+                        chunks[w] = new String[CHUNK];
+                        counts[w] = 0;
+                    }
+                }
+                for (int w = 0; w < threads; w++) {
+                    hand(queues.get(w), workers.get(w), Arrays.copyOf(chunks[w], counts[w]));
+                    hand(queues.get(w), workers.get(w), END);
+                }
+            }
+            for (Future<Long> worker : workers) {
+                journeys += worker.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Settlement failed", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        try (Writer writer = new BufferedWriter(new FileWriter(outPath), FareBatch.BUFFER_SIZE)) {
+            ledger.writeTo(writer);
+        }
+        return journeys;
+    }
+
+    // Blocks until the worker accepts the chunk, surfacing its failure instead of waiting forever.
+    private static void hand(BlockingQueue<String[]> queue, Future<Long> worker, String[] chunk)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (worker.isDone()) {
+                worker.get();
+            }
+        }
+    }
+
+    // Reads the optionally signed digits at the start of a line, ignoring overflow. Only used to
+    // pick a worker, so equal card ids always agree and anything else just needs to be stable.
+    static long leadingNumber(String line) {
+        int i = 0;
+        int n = line.length();
+        while (i < n && line.charAt(i) <= ' ') {
+            i++;
+        }
+        boolean negative = i < n && line.charAt(i) == '-';
+        if (i < n && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            i++;
+        }
+        long value = 0;
+        while (i < n && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+            value = value * 10 + (line.charAt(i++) - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    // Settles every well-formed line handed to this worker and returns how many there were.
+    private static long drain(BlockingQueue<String[]> queue, FareLedger ledger) throws InterruptedException {
+        long journeys = 0;
+        String[] lines;
+        while ((lines = queue.take()) != END) {
+            for (String line : lines) {
+                if (line == null) {
+                    break;
+                }
+                StringTokenizer st = new StringTokenizer(line);
+                if (st.countTokens() < 7) {
+                    continue;
+                }
+                long cardId = Long.parseLong(st.nextToken());
+                String route1 = st.nextToken();
+                String comCode1 = st.nextToken();
+                int fall1 = Integer.parseInt(st.nextToken());
+                String route2 = st.nextToken();
+                String comCode2 = st.nextToken();
+                int fall2 = Integer.parseInt(st.nextToken());
+                ledger.settle(cardId, route1, comCode1, fall1, route2, comCode2, fall2);
+                journeys++;
+            }
+        }
+        return journeys;
+    }
+
+    private static final class Stripe {
+        long[] keys = newKeys(16);
+        int[] balances = new int[16];
+        int size;
+
+        int indexOf(long key) {
+            int mask = keys.length - 1;
+            int i = (int) mix(key) & mask;
+            while (keys[i] != EMPTY) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        void put(long key, int balance) {
+            if (key == EMPTY) {
+                throw new IllegalArgumentException("Reserved card id " + key);
+            }
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = (int) mix(key) & mask;
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY) {
+                keys[i] = key;
+                size++;
+            }
+            balances[i] = balance;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldBalances = balances;
+            keys = newKeys(oldKeys.length * 2);
+            balances = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], oldBalances[i]);
+                }
+            }
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+import java.io.*;
+import java.util.*;
+
+// Interchange rules compiled into a dense outcome table.
+//
+// Company codes are interned to small operator ids (0 = any undeclared operator) and the
+// first character of a route is mapped to a prefix class (0 = any undeclared prefix).
+// Every (operator1, operator2, class1, class2) cell is resolved once at load time, so
+// settling a journey is two id lookups and one array load.
+//
+// Rules file format, first matching rule wins, '#' starts a comment:
+//   operator BNB
+//   prefix A
+//   rule <op1> <op2> <prefix1> <prefix2> FULL|FREE|DIFF
+// where each pattern is '*', a declared name, or '!' followed by a declared name.
+public class FareRules {
+    static final byte FULL = 0;
+    static final byte FREE = 1;
+    static final byte DIFF = 2;
+
+    static final String DEFAULT_RULES =
+            "operator BNB\n"
+            + "prefix A\n"
+            + "prefix P\n"
+            // Exclusions
+            + "rule !BNB * * * FULL\n"
+            + "rule * * * A FULL\n"
+            // Discounts
+            + "rule * * P * FREE\n"
+            + "rule BNB BNB * * DIFF\n"
+            // Default
+            + "rule * * * * FREE\n";
+
+    public static final FareRules DEFAULT = parse(new StringReader(DEFAULT_RULES));
+
+    private final String[] operators;
+    private final byte[][] operatorBytes;
+    private final Map<String, Integer> operatorIds = new HashMap<>();
+    // Open-addressing table of operator ids keyed on the code's bytes; 0 marks an empty slot.
+    private final int[] byteSlots;
+    private final byte[] prefixClass = new byte[128];
+    private final int classes;
+    private final byte[] table;
+
+    private FareRules(String[] operators, char[] prefixes, byte[] table) {
+        this.operators = operators;
+        this.operatorBytes = new byte[operators.length][];
+        int capacity = 4;
+        while (capacity < operators.length * 2) {
+            capacity <<= 1;
+        }
+        this.byteSlots = new int[capacity];
+        for (int i = 1; i < operators.length; i++) {
+            operatorBytes[i] = operators[i].getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+            operatorIds.put(operators[i], i);
+            int slot = hash(operatorBytes[i], operatorBytes[i].length) & (capacity - 1);
+            while (byteSlots[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            byteSlots[slot] = i;
+        }
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixClass[prefixes[i]] = (byte) (i + 1);
+        }
+        this.classes = prefixes.length + 1;
+        this.table = table;
+    }
+
+    public static FareRules load(String path) throws IOException {
+        try (Reader reader = new FileReader(path)) {
+            return parse(reader);
+        }
+    }
+
+    public static FareRules parse(Reader source) {
+        List<String> operators = new ArrayList<>();
+        operators.add(null);
+        StringBuilder prefixes = new StringBuilder();
+        List<String[]> rules = new ArrayList<>();
+
+        BufferedReader reader = new BufferedReader(source);
+        int lineNo = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                int hash = line.indexOf('#');
+                if (hash >= 0) {
+                    line = line.substring(0, hash);
+                }
+                String[] parts = line.trim().split("\\s+");
+                if (parts[0].isEmpty()) {
+                    continue;
+                }
+                if ("operator".equals(parts[0]) && parts.length == 2) {
+                    if (!operators.contains(parts[1])) {
+                        operators.add(parts[1]);
+                    }
+                } else if ("prefix".equals(parts[0]) && parts.length == 2 && parts[1].length() == 1
+                        && parts[1].charAt(0) < 128) {
+                    if (prefixes.indexOf(parts[1]) < 0) {
+                        prefixes.append(parts[1]);
+                    }
+                } else if ("rule".equals(parts[0]) && parts.length == 6) {
+                    rules.add(parts);
+                } else {
+                    throw new IllegalArgumentException("Bad fare rule at line " + lineNo + ": " + line.trim());
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        int ops = operators.size();
+        int classes = prefixes.length() + 1;
+        byte[] table = new byte[ops * ops * classes * classes];
+        Arrays.fill(table, FREE);
+        boolean[] filled = new boolean[table.length];
+        for (String[] rule : rules) {
+            byte outcome = parseOutcome(rule[5]);
+            for (int o1 = 0; o1 < ops; o1++) {
+                if (!matchOperator(rule[1], o1, operators)) {
+                    continue;
+                }
+                for (int o2 = 0; o2 < ops; o2++) {
+                    if (!matchOperator(rule[2], o2, operators)) {
+                        continue;
+                    }
+                    for (int c1 = 0; c1 < classes; c1++) {
+                        if (!matchPrefix(rule[3], c1, prefixes)) {
+                            continue;
+                        }
+                        for (int c2 = 0; c2 < classes; c2++) {
+                            if (!matchPrefix(rule[4], c2, prefixes)) {
+                                continue;
+                            }
+                            int cell = ((o1 * ops + o2) * classes + c1) * classes + c2;
+                            if (!filled[cell]) {
+                                filled[cell] = true;
+                                table[cell] = outcome;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return new FareRules(operators.toArray(new String[0]), prefixes.toString().toCharArray(), table);
+    }
+
+    public int operatorId(String comCode) {
+        if (comCode == null) {
+            return 0;
+        }
+        Integer id = operatorIds.get(comCode);
+        return id != null ? id : 0;
+    }
+
+    // Same as operatorId(String) but matches raw token bytes, e.g. from FastScanner.
+    public int operatorId(byte[] comCode, int len) {
+        int mask = byteSlots.length - 1;
+        int slot = hash(comCode, len) & mask;
+        int id;
+        while ((id = byteSlots[slot]) != 0) {
+            byte[] name = operatorBytes[id];
+            if (name.length == len && Arrays.equals(name, 0, len, comCode, 0, len)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    private static int hash(byte[] bytes, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) {
+            h = h * 31 + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    public int routeClass(String route) {
+        if (route == null || route.isEmpty()) {
+            return 0;
+        }
+        return routeClass(route.charAt(0));
+    }
+
+    public int routeClass(int firstChar) {
+        return firstChar >= 0 && firstChar < 128 ? prefixClass[firstChar] : 0;
+    }
+
+    public int outcome(int op1, int op2, int class1, int class2) {
+        return table[((op1 * operators.length + op2) * classes + class1) * classes + class2];
+    }
+
+    public int apply(int balance, int outcome, int fall1, int fall2) {
+        if (balance < 0) {
+            return balance;
+        }
+        return balance - charge(outcome, fall1, fall2);
+    }
+
+    // Amount payable for leg 2 under the given outcome.
+    public int charge(int outcome, int fall1, int fall2) {
+        switch (outcome) {
+            case FULL:
+                return fall2;
+            case DIFF:
+                return Math.max(0, fall2 - fall1);
+            default:
+                return 0;
+        }
+    }
+
+    public int settle(int balance, String route1, String comCode1, int fall1,
+                      String route2, String comCode2, int fall2) {
+        int outcome = outcome(operatorId(comCode1), operatorId(comCode2), routeClass(route1), routeClass(route2));
+        return apply(balance, outcome, fall1, fall2);
+    }
+
+    private static boolean matchOperator(String pattern, int id, List<String> operators) {
+        if ("*".equals(pattern)) {
+            return true;
+        }
+        boolean negate = pattern.startsWith("!");
+        String name = negate ? pattern.substring(1) : pattern;
+        int target = operators.indexOf(name);
+        if (target <= 0) {
+            throw new IllegalArgumentException("Undeclared operator in fare rule: " + name);
+        }
+        return (id == target) != negate;
+    }
+
+    private static boolean matchPrefix(String pattern, int cls, StringBuilder prefixes) {
+        if ("*".equals(pattern)) {
+            return true;
+        }
+        boolean negate = pattern.startsWith("!");
+        String name = negate ? pattern.substring(1) : pattern;
+        int target = prefixes.indexOf(name) + 1;
+        if (target <= 0 || name.length() != 1) {
+            throw new IllegalArgumentException("Undeclared prefix in fare rule: " + name);
+        }
+        return (cls == target) != negate;
+    }
+
+    private static byte parseOutcome(String s) {
+        switch (s) {
+            case "FULL":
+                return FULL;
+            case "FREE":
+                return FREE;
+            case "DIFF":
+                return DIFF;
+            default:
+                throw new IllegalArgumentException("Unknown fare outcome: " + s);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+import java.io.*;
+
+// Whitespace tokenizer that parses straight out of a reusable byte buffer.
+// Ints and tokens are decoded without building Strings or regex split arrays, so
+// long segment lists and tap logs can be read with no per-line garbage.
+// Input is treated as ASCII.
+public class FastScanner {
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buf;
+    private int pos;
+    private int limit;
+
+    private byte[] token = new byte[32];
+    private int[] ints = new int[16];
+
+    public FastScanner(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public FastScanner(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[bufferSize];
+    }
+
+    // Reads from a character stream, e.g. an existing BufferedReader. Input is still ASCII.
+    public FastScanner(Reader reader) {
+        this(new ReaderStream(reader), DEFAULT_BUFFER_SIZE);
+    }
+
+    // Returns true if another token exists anywhere in the remaining input.
+    public boolean hasNext() throws IOException {
+        int c;
+        while ((c = peek()) != -1 && c <= ' ') {
+            pos++;
+        }
+        return c != -1;
+    }
+
+    // Returns true if another token exists before the end of the current line.
+    public boolean hasNextOnLine() throws IOException {
+        int c;
+        while ((c = peek()) != -1 && c != '\n' && c <= ' ') {
+            pos++;
+        }
+        return c != -1 && c != '\n';
+    }
+
+    // Returns true, consuming the line terminator, if no token is left on the current line.
+    // Checked before each field so a short line is skipped instead of borrowing tokens
+    // from the next one.
+    public boolean lineEnded() throws IOException {
+        if (hasNextOnLine()) {
+            return false;
+        }
+        skipLine();
+        return true;
+    }
+
+    // Consumes the rest of the current line, including its terminator.
+    // Returns false if the input was already exhausted.
+    public boolean skipLine() throws IOException {
+        int c = peek();
+        if (c == -1) {
+            return false;
+        }
+        while ((c = read()) != -1 && c != '\n') {
+            // skip
+        }
+        return true;
+    }
+
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of int range: " + value);
+        }
+        return (int) value;
+    }
+
+    public long nextLong() throws IOException {
+        if (!hasNext()) {
+            throw new EOFException();
+        }
+        int c = read();
+        boolean negative = false;
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            c = read();
+        }
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Expected a digit but found '" + (char) c + "'");
+        }
+        // Accumulated as a negative number, like Long.parseLong, so Long.MIN_VALUE parses too.
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            int d = c - '0';
+            if (value < (Long.MIN_VALUE + d) / 10) {
+                throw new NumberFormatException("Number out of long range");
+            }
+            value = value * 10 - d;
+            c = peek();
+            if (c >= '0' && c <= '9') {
+                pos++;
+            }
+        }
+        if (c > ' ') {
+            throw new NumberFormatException("Unexpected character '" + (char) c + "' in number");
+        }
+        if (!negative && value == Long.MIN_VALUE) {
+            throw new NumberFormatException("Number out of long range");
+        }
+        return negative ? value : -value;
+    }
+
+    // Reads the next token into the shared token buffer and returns its length.
+    // The bytes stay valid until the next call to nextToken.
+    public int nextToken() throws IOException {
+        if (!hasNext()) {
+            throw new EOFException();
+        }
+        int len = 0;
+        int c;
+        while ((c = peek()) > ' ') {
+            if (len == token.length) {
+                byte[] grown = new byte[len * 2];
+                System.arraycopy(token, 0, grown, 0, len);
+                token = grown;
+            }
+            token[len++] = (byte) c;
+            pos++;
+        }
+        return len;
+    }
+
+    public byte[] tokenBytes() {
+        return token;
+    }
+
+    public String nextString() throws IOException {
+        int len = nextToken();
+        return new String(token, 0, len, java.nio.charset.StandardCharsets.US_ASCII);
+    }
+
+    // Reads every int left on the current line into the shared int buffer and returns
+    // how many were read. The values stay valid until the next call to nextLineInts.
+    public int nextLineInts() throws IOException {
+        int n = 0;
+        while (hasNextOnLine()) {
+            if (n == ints.length) {
+                int[] grown = new int[n * 2];
+                System.arraycopy(ints, 0, grown, 0, n);
+                ints = grown;
+            }
+            ints[n++] = nextInt();
+        }
+        skipLine();
+        return n;
+    }
+
+    public int[] ints() {
+        return ints;
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos] & 0xff;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos++] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    // Narrows each char to a byte, which is lossless for the ASCII input this class expects.
+    private static final class ReaderStream extends InputStream {
+        private final Reader reader;
+        private char[] chars = new char[0];
+
+        ReaderStream(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return reader.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (chars.length < len) {
+                chars = new char[len];
+            }
+            int n = reader.read(chars, 0, len);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) chars[i];
+            }
+            return n;
+        }
+    }
+}
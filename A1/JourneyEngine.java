@@ -0,0 +1,201 @@
+import java.io.*;
+import java.util.*;
+
+// Streams taps for many cards and charges each leg of a multi-leg journey.
+//
+// A leg continues the card's journey when it is tapped within the interchange window of
+// the previous leg and the journey has fewer than maxLegs legs; the fare rules are then
+// applied with the previous leg as leg 1. Otherwise the leg starts a new journey and pays
+// its full fare. Only the previous leg is kept per card (operator id, prefix class, fare,
+// tap time, leg count), packed into primitive arrays, and cards idle for longer than the
+// window are evicted, so memory is bounded by the number of cards tapping within one
+// window. Taps are expected in non-decreasing time order.
+public class JourneyEngine {
+    static final long EMPTY = Long.MIN_VALUE;
+
+    private final FareRules rules;
+    private final long window;
+    private final int maxLegs;
+
+    private long[] keys;
+    private long[] lastTime;
+    private int[] lastFare;
+    private int[] lastOp;
+    private int[] lastClass;
+    private short[] legs;
+    private int size;
+    private long now = Long.MIN_VALUE;
+
+    public JourneyEngine(FareRules rules, long window, int maxLegs) {
+        if (maxLegs < 1 || maxLegs > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("maxLegs must be between 1 and " + Short.MAX_VALUE);
+        }
+        this.rules = rules;
+        this.window = window;
+        this.maxLegs = maxLegs;
+        allocate(1024);
+    }
+
+    // Returns the amount to charge for this leg.
+    public int tap(long cardId, long time, int op, int routeClass, int fare) {
+        if (cardId == EMPTY) {
+            throw new IllegalArgumentException("Reserved card id " + cardId);
+        }
+        now = Math.max(now, time);
+        int i = slot(cardId);
+        int charge;
+        if (keys[i] == cardId && time - lastTime[i] <= window && legs[i] < maxLegs) {
+            int outcome = rules.outcome(lastOp[i], op, lastClass[i], routeClass);
+            charge = rules.charge(outcome, lastFare[i], fare);
+            legs[i]++;
+        } else {
+            if (keys[i] != cardId) {
+                if ((size + 1) * 2 > keys.length) {
+                    rehash();
+                    i = slot(cardId);
+                }
+                keys[i] = cardId;
+                size++;
+            }
+            charge = fare;
+            legs[i] = 1;
+        }
+        lastTime[i] = time;
+        lastFare[i] = fare;
+        lastOp[i] = op;
+        lastClass[i] = routeClass;
+        return charge;
+    }
+
+    public int activeCards() {
+        return size;
+    }
+
+    // Drops every card whose last tap is outside the window, shrinking back when possible.
+    public void evictIdle() {
+        long[] oldKeys = keys;
+        long[] oldTime = lastTime;
+        int[] oldFare = lastFare;
+        int[] oldOp = lastOp;
+        int[] oldClass = lastClass;
+        short[] oldLegs = legs;
+
+        int live = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY && now - oldTime[i] <= window) {
+                live++;
+            }
+        }
+        int capacity = 1024;
+        while (capacity < live * 4) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY && now - oldTime[i] <= window) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                lastTime[j] = oldTime[i];
+                lastFare[j] = oldFare[i];
+                lastOp[j] = oldOp[i];
+                lastClass[j] = oldClass[i];
+                legs[j] = oldLegs[i];
+                size++;
+            }
+        }
+    }
+
+    private void rehash() {
+        evictIdle();
+        if ((size + 1) * 2 > keys.length) {
+            // Still full of live cards: evictIdle sized for them, so grow past it.
+            long[] liveKeys = keys;
+            long[] liveTime = lastTime;
+            int[] liveFare = lastFare;
+            int[] liveOp = lastOp;
+            int[] liveClass = lastClass;
+            short[] liveLegs = legs;
+            allocate(liveKeys.length * 2);
+            for (int i = 0; i < liveKeys.length; i++) {
+                if (liveKeys[i] != EMPTY) {
+                    int j = slot(liveKeys[i]);
+                    keys[j] = liveKeys[i];
+                    lastTime[j] = liveTime[i];
+                    lastFare[j] = liveFare[i];
+                    lastOp[j] = liveOp[i];
+                    lastClass[j] = liveClass[i];
+                    legs[j] = liveLegs[i];
+                    size++;
+                }
+            }
+        }
+    }
+
+    private int slot(long cardId) {
+        int mask = keys.length - 1;
+        int i = (int) FareLedger.mix(cardId) & mask;
+        while (keys[i] != EMPTY && keys[i] != cardId) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        lastTime = new long[capacity];
+        lastFare = new int[capacity];
+        lastOp = new int[capacity];
+        lastClass = new int[capacity];
+        legs = new short[capacity];
+        size = 0;
+    }
+
+    // Reads "cardId time route comCode fare" taps and writes "cardId time charge" lines.
+    public static long run(String inPath, String outPath, long window, int maxLegs) throws IOException {
+        FareRules rules = FareRules.DEFAULT;
+        JourneyEngine engine = new JourneyEngine(rules, window, maxLegs);
+        byte[] digits = new byte[20];
+        long taps = 0;
+        try (InputStream in = new FileInputStream(inPath);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(outPath), FareBatch.BUFFER_SIZE)) {
+            FastScanner scanner = new FastScanner(in, FareBatch.BUFFER_SIZE);
+            while (scanner.hasNext()) {
+                // Short lines are skipped rather than completed from the next line.
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                long cardId = scanner.nextLong();
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                long time = scanner.nextLong();
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                scanner.nextToken();
+                int routeClass = rules.routeClass(scanner.tokenBytes()[0]);
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                int comLen = scanner.nextToken();
+                int op = rules.operatorId(scanner.tokenBytes(), comLen);
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                int fare = scanner.nextInt();
+                scanner.skipLine();
+
+                int charge = engine.tap(cardId, time, op, routeClass, fare);
+                FareBatch.writeLong(out, cardId, digits);
+                out.write(' ');
+                FareBatch.writeLong(out, time, digits);
+                out.write(' ');
+                FareBatch.writeLong(out, charge, digits);
+                out.write('\n');
+                taps++;
+            }
+        }
+        return taps;
+    }
+}
@@ -0,0 +1,43 @@
+// 2x2 min-plus matrices for the two-road recurrence of Question2.
+//
+// Entering segment i from road a onto road b costs M[a][b] = time_b[i] plus switchCost when
+// a != b, and the best times after segment i are the min-plus product of the times after
+// segment i - 1 with M. Products of consecutive matrices are associative, which lets ranges
+// of the corridor be solved independently and combined. A matrix is four longs at an offset
+// in a long array: [TT, TC, CT, CC] (T = Tuen Mun, C = Castle Peak).
+public class MinPlus {
+    // Large enough to never win a min, small enough that INF + INF does not overflow.
+    static final long INF = Long.MAX_VALUE / 4;
+
+    public static void identity(long[] m, int off) {
+        m[off] = 0;
+        m[off + 1] = INF;
+        m[off + 2] = INF;
+        m[off + 3] = 0;
+    }
+
+    public static void segment(long[] m, int off, long switchCost, long tunMun, long castlePeak) {
+        m[off] = tunMun;
+        m[off + 1] = switchCost + castlePeak;
+        m[off + 2] = switchCost + tunMun;
+        m[off + 3] = castlePeak;
+    }
+
+    // out = a (x) b. out may alias either operand.
+    public static void multiply(long[] a, int ao, long[] b, int bo, long[] out, int oo) {
+        long a00 = a[ao], a01 = a[ao + 1], a10 = a[ao + 2], a11 = a[ao + 3];
+        long b00 = b[bo], b01 = b[bo + 1], b10 = b[bo + 2], b11 = b[bo + 3];
+        out[oo] = Math.min(Math.min(a00 + b00, a01 + b10), INF);
+        out[oo + 1] = Math.min(Math.min(a00 + b01, a01 + b11), INF);
+        out[oo + 2] = Math.min(Math.min(a10 + b00, a11 + b10), INF);
+        out[oo + 3] = Math.min(Math.min(a10 + b01, a11 + b11), INF);
+    }
+
+    // Best finishing time when starting on the first segment with times (tunMun, castlePeak)
+    // and then applying the product m.
+    public static long finish(long tunMun, long castlePeak, long[] m, int off) {
+        long endTunMun = Math.min(tunMun + m[off], castlePeak + m[off + 2]);
+        long endCastlePeak = Math.min(tunMun + m[off + 1], castlePeak + m[off + 3]);
+        return Math.min(endTunMun, endCastlePeak);
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.concurrent.*;
+
+// Fork-join solver for very long Question2 corridors.
+//
+// The corridor is split into chunks; each chunk is reduced to the 2x2 min-plus matrix of its
+// segments (two sequential passes, one per starting road), and chunk matrices are combined
+// in order with MinPlus.multiply. The answer is the first segment's times pushed through the
+// product of all chunks.
+public class ParallelCorridor {
+    static final int DEFAULT_THRESHOLD = 1 << 16;
+
+    public static long minimumTime(int[] tunMun, int[] castlePeak, int segments, long switchCost) {
+        return minimumTime(tunMun, castlePeak, segments, switchCost, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    // Solves segments 0..segments inclusive, matching Question2.minimumTime.
+    public static long minimumTime(int[] tunMun, int[] castlePeak, int segments, long switchCost,
+                                   ForkJoinPool pool, int threshold) {
+        if (segments == 0) {
+            return Math.min(tunMun[0], castlePeak[0]);
+        }
+        long[] product = pool.invoke(new Chunk(tunMun, castlePeak, switchCost, 1, segments + 1, threshold));
+        return MinPlus.finish(tunMun[0], castlePeak[0], product, 0);
+    }
+
+    private static final class Chunk extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] tunMun;
+        private final int[] castlePeak;
+        private final long switchCost;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        Chunk(int[] tunMun, int[] castlePeak, long switchCost, int from, int to, int threshold) {
+            this.tunMun = tunMun;
+            this.castlePeak = castlePeak;
+            this.switchCost = switchCost;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= threshold) {
+                return reduce();
+            }
+            int mid = (from + to) >>> 1;
+            Chunk leftHalf = new Chunk(tunMun, castlePeak, switchCost, from, mid, threshold);
+            leftHalf.fork();
+            long[] right = new Chunk(tunMun, castlePeak, switchCost, mid, to, threshold).compute();
+            long[] left = leftHalf.join();
+            MinPlus.multiply(left, 0, right, 0, left, 0);
+            return left;
+        }
+
+        // Row a of the chunk matrix is the recurrence run from road a with the other road
+        // unreachable.
+        private long[] reduce() {
+            long[] m = new long[4];
+            for (int start = 0; start < 2; start++) {
+                long dp1 = start == 0 ? 0 : MinPlus.INF;
+                long dp2 = start == 1 ? 0 : MinPlus.INF;
+                for (int i = from; i < to; i++) {
+                    long next1 = Math.min(dp1, dp2 + switchCost) + tunMun[i];
+                    long next2 = Math.min(dp2, dp1 + switchCost) + castlePeak[i];
+                    dp1 = Math.min(next1, MinPlus.INF);
+                    dp2 = Math.min(next2, MinPlus.INF);
+                }
+                m[2 * start] = dp1;
+                m[2 * start + 1] = dp2;
+            }
+            return m;
+        }
+    }
+}
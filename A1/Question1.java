@@ -11,54 +11,91 @@ public class Question1 {
     static int fall2 = 0;
 
     public static void inputLine(BufferedReader reader) throws IOException {
-        balance = Integer.parseInt(reader.readLine());
+        inputLine(new FastScanner(reader));
+    }
+
+    public static void inputLine(FastScanner scanner) throws IOException {
+        balance = scanner.nextInt();
+        scanner.skipLine();
 
-        String input2 = reader.readLine();
-        String[] temp2 = input2.trim().split("\\s+");
-        if (temp2.length >= 3) {
-            route1 = temp2[0];
-            comCode1 = temp2[1];
-            fall1 = Integer.parseInt(temp2[2]);
+        if (scanner.hasNextOnLine()) {
+            String route = scanner.nextString();
+            if (scanner.hasNextOnLine()) {
+                String comCode = scanner.nextString();
+                if (scanner.hasNextOnLine()) {
+                    route1 = route;
+                    comCode1 = comCode;
+                    fall1 = scanner.nextInt();
+                }
+            }
         }
+        scanner.skipLine();
 
-        String input3 = reader.readLine();
-        String[] temp3 = input3.trim().split("\\s+");
-        if (temp3.length >= 3) {
-            route2 = temp3[0];
-            comCode2 = temp3[1];
-            fall2 = Integer.parseInt(temp3[2]);
+        if (scanner.hasNextOnLine()) {
+            String route = scanner.nextString();
+            if (scanner.hasNextOnLine()) {
+                String comCode = scanner.nextString();
+                if (scanner.hasNextOnLine()) {
+                    route2 = route;
+                    comCode2 = comCode;
+                    fall2 = scanner.nextInt();
+                }
+            }
         }
+        scanner.skipLine();
     }
 
     public static int remainingBalance(BufferedReader reader) throws IOException {
-        inputLine(reader);
-        if (balance < 0) {
-            return balance;
+        return remainingBalance(new FastScanner(reader));
+    }
+
+    public static int remainingBalance(FastScanner scanner) throws IOException {
+        inputLine(scanner);
+        return settle(balance, route1, comCode1, fall1, route2, comCode2, fall2);
+    }
+
+    // Applies the interchange rules to one journey without touching the static fields,
+    // so batch callers can settle many journeys in one JVM.
+    public static int settle(int balance, String route1, String comCode1, int fall1,
+                             String route2, String comCode2, int fall2) {
+        return FareRules.DEFAULT.settle(balance, route1, comCode1, fall1, route2, comCode2, fall2);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length >= 4 && "--ledger".equals(args[0])) {
+            int threads = args.length >= 5 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+            FareRules rules = args.length >= 6 ? FareRules.load(args[5]) : FareRules.DEFAULT;
+            long journeys = FareLedger.run(args[1], args[2], args[3], rules, threads);
+            System.out.println("Settled " + journeys + " journeys.");
+            return;
         }
-        // Exclusions
-        if (!"BNB".equals(comCode1)) {
-            return balance - fall2;
+        if (args.length >= 3 && "--journeys".equals(args[0])) {
+            long window = args.length >= 4 ? Long.parseLong(args[3]) : 30 * 60;
+            int maxLegs = args.length >= 5 ? Integer.parseInt(args[4]) : 5;
+            long taps = JourneyEngine.run(args[1], args[2], window, maxLegs);
+            System.out.println("Charged " + taps + " taps.");
+            return;
         }
-        if (route2 != null && !route2.isEmpty() && route2.charAt(0) == 'A') {
-            return balance - fall2;
+        if (args.length == 3 && "--store".equals(args[0])) {
+            TripStore store = TripStore.load(args[1]);
+            store.save(args[2]);
+            System.out.println("Stored " + store.size() + " journeys.");
+            return;
         }
-
-        // Discounts
-        if (route1 != null && !route1.isEmpty() && route1.charAt(0) == 'P') {
-            return balance;
+        if (args.length >= 3 && "--resettle".equals(args[0])) {
+            FareRules rules = args.length >= 4 ? FareRules.load(args[3]) : FareRules.DEFAULT;
+            int journeys = TripStore.resettle(args[1], args[2], rules);
+            System.out.println("Settled " + journeys + " journeys.");
+            return;
         }
-        if ("BNB".equals(comCode1) && "BNB".equals(comCode2)) {
-            int toPay = Math.max(0, fall2 - fall1);
-            return balance - toPay;
+        if (args.length >= 3 && "--batch".equals(args[0])) {
+            FareRules rules = args.length >= 4 ? FareRules.load(args[3]) : FareRules.DEFAULT;
+            long journeys = FareBatch.run(args[1], args[2], rules);
+            System.out.println("Settled " + journeys + " journeys.");
+            return;
         }
-
-        // Default
-        return balance;
-    }
-
-    public static void main(String[] args) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        int result = remainingBalance(reader);
+        FastScanner scanner = new FastScanner(System.in);
+        int result = remainingBalance(scanner);
         System.out.println("The remaining balance is " + result + ".");
     }
 }
\ No newline at end of file
@@ -8,41 +8,152 @@ public class Question2 {
     static int[] dpCastlePeak ;
 
     public static int minimumTime(BufferedReader reader) throws IOException {
-        x = Integer.parseInt(reader.readLine());
-        switchCost = Integer.parseInt(reader.readLine());
-        String[] tunMunStr = reader.readLine().trim().split("\\s+");
-        dpTunMun = new int[tunMunStr.length];  // Remove "int[]" here
-        for (int i = 0; i < tunMunStr.length; i++) {
-            dpTunMun[i] = Integer.parseInt(tunMunStr[i]);
-        }
-        String[] castlePeakStr = reader.readLine().trim().split("\\s+");
-        dpCastlePeak = new int[castlePeakStr.length];  // Remove "int[]" here
-        for (int i = 0; i < castlePeakStr.length; i++) {
-            dpCastlePeak[i] = Integer.parseInt(castlePeakStr[i]);
-        }
-        int[] dp1 = new int[dpTunMun.length + 1];
-        int[] dp2 = new int[dpCastlePeak.length + 1];
-
-        dp1[0] = dpTunMun[0];
-        dp2[0] = dpCastlePeak[0];
+        return minimumTime(new FastScanner(reader));
+    }
+
+    public static int minimumTime(FastScanner scanner) throws IOException {
+        readInput(scanner);
+        return minimumTime(dpTunMun, dpCastlePeak, x, switchCost);
+    }
+
+    public static int minimumTime(int[] dpTunMun, int[] dpCastlePeak, int x, int switchCost) {
+        // Each step only needs the previous best time on each road.
+        int dp1 = dpTunMun[0];
+        int dp2 = dpCastlePeak[0];
         for (int i = 1; i <= x; i++) {
             // for tuen mun road
-            int stayOnTuenMun = dp1[i-1] + dpTunMun[i];
-            int switchToTuenMun = dp2[i-1] + switchCost + dpTunMun[i];
-            dp1[i] = Math.min(stayOnTuenMun, switchToTuenMun);
+            int stayOnTuenMun = dp1 + dpTunMun[i];
+            int switchToTuenMun = dp2 + switchCost + dpTunMun[i];
             // For Castle Peak Road
-            int stayOnCastlePeak = dp2[i-1] + dpCastlePeak[i];
-            int switchToCastlePeak = dp1[i-1] + switchCost + dpCastlePeak[i];
-            dp2[i] = Math.min(stayOnCastlePeak, switchToCastlePeak);
+            int stayOnCastlePeak = dp2 + dpCastlePeak[i];
+            int switchToCastlePeak = dp1 + switchCost + dpCastlePeak[i];
+            dp1 = Math.min(stayOnTuenMun, switchToTuenMun);
+            dp2 = Math.min(stayOnCastlePeak, switchToCastlePeak);
         }
 
 
-        return Math.min(dp1[x], dp2[x]);
+        return Math.min(dp1, dp2);
+    }
+
+    public static void readInput(FastScanner scanner) throws IOException {
+        x = scanner.nextInt();
+        scanner.skipLine();
+        switchCost = scanner.nextInt();
+        scanner.skipLine();
+        int tunMunCount = scanner.nextLineInts();
+        dpTunMun = Arrays.copyOf(scanner.ints(), tunMunCount);
+        int castlePeakCount = scanner.nextLineInts();
+        dpCastlePeak = Arrays.copyOf(scanner.ints(), castlePeakCount);
+    }
+
+    // Solves a file in the usual four-line layout without loading either road into memory.
+    // Two scanners walk the file: one along the Tuen Mun line and one along the Castle Peak
+    // line, so memory use is two read buffers however long the corridor is.
+    public static long streamMinimumTime(String path) throws IOException {
+        try (InputStream tunMunIn = new FileInputStream(path);
+             InputStream castlePeakIn = new FileInputStream(path)) {
+            FastScanner tunMun = new FastScanner(tunMunIn);
+            long segments = tunMun.nextLong();
+            tunMun.skipLine();
+            long cost = tunMun.nextLong();
+            tunMun.skipLine();
+
+            FastScanner castlePeak = new FastScanner(castlePeakIn);
+            castlePeak.skipLine();
+            castlePeak.skipLine();
+            castlePeak.skipLine();
+            return streamMinimumTime(tunMun, castlePeak, segments, cost);
+        }
+    }
+
+    // Solves an interleaved stream: x, switchCost, then x + 1 pairs of
+    // "tuenMunTime castlePeakTime" in any whitespace layout, e.g. one pair per line.
+    public static long streamMinimumTime(FastScanner scanner) throws IOException {
+        long segments = scanner.nextLong();
+        long cost = scanner.nextLong();
+        return streamMinimumTime(scanner, scanner, segments, cost);
+    }
+
+    private static long streamMinimumTime(FastScanner tunMun, FastScanner castlePeak,
+                                          long segments, long cost) throws IOException {
+        long dp1 = tunMun.nextLong();
+        long dp2 = castlePeak.nextLong();
+        for (long i = 1; i <= segments; i++) {
+            long t = tunMun.nextLong();
+            long c = castlePeak.nextLong();
+            long next1 = Math.min(dp1, dp2 + cost) + t;
+            long next2 = Math.min(dp2, dp1 + cost) + c;
+            dp1 = next1;
+            dp2 = next2;
+        }
+        return Math.min(dp1, dp2);
     }
 
 	public static void main(String[] args) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        int result = minimumTime(reader);
+        if (args.length == 2 && "--stream".equals(args[0])) {
+            System.out.println("The minimum time needed is " + streamMinimumTime(args[1]) + ".");
+            return;
+        }
+        if (args.length == 1 && "--parallel".equals(args[0])) {
+            readInput(new FastScanner(System.in));
+            long result = ParallelCorridor.minimumTime(dpTunMun, dpCastlePeak, x, switchCost);
+            System.out.println("The minimum time needed is " + result + ".");
+            return;
+        }
+        if (args.length == 1 && "--path".equals(args[0])) {
+            readInput(new FastScanner(System.in));
+            CorridorPath path = CorridorPath.solve(dpTunMun, dpCastlePeak, x, switchCost);
+            System.out.println("The minimum time needed is " + path.totalTime() + ".");
+            System.out.println("Lanes: " + path.laneString());
+            System.out.println("Switches at: " + Arrays.toString(path.switchPoints()));
+            return;
+        }
+        if (args.length >= 2 && "--scenarios".equals(args[0])) {
+            readInput(new FastScanner(System.in));
+            long[] costs = new long[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                costs[i - 1] = Long.parseLong(args[i]);
+            }
+            long[] results = ScenarioBatch.minimumTimes(dpTunMun, dpCastlePeak, x, costs);
+            for (int i = 0; i < costs.length; i++) {
+                System.out.println("Switch cost " + costs[i] + ": the minimum time needed is " + results[i] + ".");
+            }
+            return;
+        }
+        if (args.length == 1 && "--live".equals(args[0])) {
+            // After the usual input, each "segment road time" line (road 0 = Tuen Mun,
+            // 1 = Castle Peak) updates one segment and prints the new minimum time.
+            FastScanner scanner = new FastScanner(System.in);
+            readInput(scanner);
+            CorridorIndex index = new CorridorIndex(dpTunMun, dpCastlePeak, x + 1, switchCost);
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+            out.println("The minimum time needed is " + index.best() + ".");
+            while (scanner.hasNext()) {
+                int segment = scanner.nextInt();
+                int road = scanner.nextInt();
+                long time = scanner.nextLong();
+                index.update(segment, road, time);
+                out.println("The minimum time needed is " + index.best() + ".");
+            }
+            out.flush();
+            return;
+        }
+        if (args.length == 3 && "--to-binary".equals(args[0])) {
+            long segments = SegmentFile.convert(args[1], args[2]);
+            System.out.println("Converted " + segments + " segments.");
+            return;
+        }
+        if (args.length == 2 && "--binary".equals(args[0])) {
+            System.out.println("The minimum time needed is " + SegmentFile.minimumTime(args[1]) + ".");
+            return;
+        }
+        if (args.length == 1 && "--pairs".equals(args[0])) {
+            long result = streamMinimumTime(new FastScanner(System.in));
+            System.out.println("The minimum time needed is " + result + ".");
+            return;
+        }
+        FastScanner scanner = new FastScanner(System.in);
+        int result = minimumTime(scanner);
         System.out.println("The minimum time needed is " + result + ".");
 	}
 }
\ No newline at end of file
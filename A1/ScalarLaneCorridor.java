@@ -0,0 +1,136 @@
+import java.util.*;
+
+// Question2 generalised to K parallel roads with a K x K switch-cost matrix.
+//
+// Times are stored segment-major (times[i * K + lane]) so one step reads a contiguous run.
+// The step relaxes every destination lane from one source lane at a time:
+//   next[b] = min(next[b], cur[a] + switchCost[a][b])
+// This is plain scalar code, roughly K * K relaxations per segment. Each segment depends on
+// the previous one and K is small, so there is too little independent work per step for
+// SIMD to pay off. For two roads Question2's dedicated loop is several times faster and
+// should be used instead.
+public class ScalarLaneCorridor {
+    private final int lanes;
+    private final long[] switchCost;
+
+    // switchCost[a * lanes + b] is the cost of moving from lane a to lane b; the diagonal is
+    // normally zero.
+    public ScalarLaneCorridor(int lanes, long[] switchCost) {
+        if (switchCost.length != lanes * lanes) {
+            throw new IllegalArgumentException("Switch-cost matrix must be " + lanes + "x" + lanes);
+        }
+        this.lanes = lanes;
+        this.switchCost = switchCost.clone();
+    }
+
+    public static ScalarLaneCorridor uniform(int lanes, long cost) {
+        long[] m = new long[lanes * lanes];
+        for (int a = 0; a < lanes; a++) {
+            for (int b = 0; b < lanes; b++) {
+                m[a * lanes + b] = a == b ? 0 : cost;
+            }
+        }
+        return new ScalarLaneCorridor(lanes, m);
+    }
+
+    public int lanes() {
+        return lanes;
+    }
+
+    // Best time over segments 0..segments inclusive, starting on any lane.
+    public long minimumTime(int[] times, int segments) {
+        int k = lanes;
+        if ((long) (segments + 1) * k > times.length) {
+            throw new IllegalArgumentException("Need " + (segments + 1) + " segments of " + k + " lanes");
+        }
+        long[] cur = new long[k];
+        long[] next = new long[k];
+        for (int b = 0; b < k; b++) {
+            cur[b] = times[b];
+        }
+        for (int i = 1; i <= segments; i++) {
+            int base = i * k;
+            for (int a = 0; a < k; a++) {
+                long from = cur[a];
+                int row = a * k;
+                if (a == 0) {
+                    for (int b = 0; b < k; b++) {
+                        next[b] = from + switchCost[row + b];
+                    }
+                } else {
+                    for (int b = 0; b < k; b++) {
+                        next[b] = Math.min(next[b], from + switchCost[row + b]);
+                    }
+                }
+            }
+            for (int b = 0; b < k; b++) {
+                next[b] += times[base + b];
+            }
+            long[] swap = cur;
+            cur = next;
+            next = swap;
+        }
+        long best = MinPlus.INF;
+        for (int b = 0; b < k; b++) {
+            best = Math.min(best, cur[b]);
+        }
+        return best;
+    }
+
+    // Interleaves per-road arrays into the segment-major layout.
+    public static int[] interleave(int[]... roads) {
+        int k = roads.length;
+        int n = roads[0].length;
+        int[] times = new int[n * k];
+        for (int lane = 0; lane < k; lane++) {
+            for (int i = 0; i < n; i++) {
+                times[i * k + lane] = roads[lane][i];
+            }
+        }
+        return times;
+    }
+
+    // Throughput report: java ScalarLaneCorridor [segments] [lanes]
+    // Times the two-lane Question2 loop against this engine at K = 2 and at K = lanes.
+    public static void main(String[] args) {
+        int segments = args.length >= 1 ? Integer.parseInt(args[0]) : 10_000_000;
+        int wide = args.length >= 2 ? Integer.parseInt(args[1]) : 8;
+        int switchCost = 3;
+        Random rnd = new Random(2396);
+
+        int[] tunMun = new int[segments + 1];
+        int[] castlePeak = new int[segments + 1];
+        for (int i = 0; i <= segments; i++) {
+            tunMun[i] = rnd.nextInt(10);
+            castlePeak[i] = rnd.nextInt(10);
+        }
+        int[] twoLane = interleave(tunMun, castlePeak);
+        int[] wideTimes = new int[(segments + 1) * wide];
+        for (int i = 0; i < wideTimes.length; i++) {
+            wideTimes[i] = rnd.nextInt(10);
+        }
+        ScalarLaneCorridor two = uniform(2, switchCost);
+        ScalarLaneCorridor many = uniform(wide, switchCost);
+
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            long reference = Question2.minimumTime(tunMun, castlePeak, segments, switchCost);
+            long t1 = System.nanoTime();
+            long general = two.minimumTime(twoLane, segments);
+            long t2 = System.nanoTime();
+            long wideResult = many.minimumTime(wideTimes, segments);
+            long t3 = System.nanoTime();
+            if (reference != general) {
+                throw new IllegalStateException("K=2 engine disagrees: " + general + " vs " + reference);
+            }
+            System.out.printf("round %d: two-lane loop %.2f ns/seg, K=2 %.2f ns/seg, K=%d %.2f ns/seg (%.2f ns/lane-seg) [%d]%n",
+                    round,
+                    (t1 - t0) / (double) segments,
+                    (t2 - t1) / (double) segments,
+                    wide,
+                    (t3 - t2) / (double) segments,
+                    (t3 - t2) / (double) segments / wide,
+                    wideResult);
+        }
+    }
+}
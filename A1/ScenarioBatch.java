@@ -0,0 +1,56 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.*;
+
+// Evaluates Question2 for many switch costs over the same corridor.
+//
+// Scenarios are grouped into blocks. A block walks the corridor once and, for every segment,
+// advances all of its scenarios from a pair of contiguous long arrays, so each segment time
+// is loaded once per block rather than once per scenario and the inner loop is a plain
+// element-wise update. Blocks run in parallel on the common fork-join pool; they are sized so
+// every worker gets one even for a few hundred scenarios, and capped so a block's arrays stay
+// in cache for large batches.
+public class ScenarioBatch {
+    static final int MIN_BLOCK = 16;
+    static final int MAX_BLOCK = 256;
+
+    // result[s] is the minimum time over segments 0..x with switch cost switchCosts[s].
+    public static long[] minimumTimes(int[] tunMun, int[] castlePeak, int x, long[] switchCosts) {
+        long[] result = new long[switchCosts.length];
+        int workers = ForkJoinPool.getCommonPoolParallelism();
+        int block = Math.max(MIN_BLOCK, Math.min(MAX_BLOCK, (switchCosts.length + workers - 1) / workers));
+        int blocks = (switchCosts.length + block - 1) / block;
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            int from = b * block;
+            int to = Math.min(switchCosts.length, from + block);
+            solveBlock(tunMun, castlePeak, x, switchCosts, from, to, result);
+        });
+        return result;
+    }
+
+    private static void solveBlock(int[] tunMun, int[] castlePeak, int x, long[] switchCosts,
+                                   int from, int to, long[] result) {
+        int n = to - from;
+        long[] cost = new long[n];
+        long[] dp1 = new long[n];
+        long[] dp2 = new long[n];
+        System.arraycopy(switchCosts, from, cost, 0, n);
+        for (int s = 0; s < n; s++) {
+            dp1[s] = tunMun[0];
+            dp2[s] = castlePeak[0];
+        }
+        for (int i = 1; i <= x; i++) {
+            long t = tunMun[i];
+            long c = castlePeak[i];
+            for (int s = 0; s < n; s++) {
+                long a = dp1[s];
+                long b = dp2[s];
+                long k = cost[s];
+                dp1[s] = Math.min(a, b + k) + t;
+                dp2[s] = Math.min(b, a + k) + c;
+            }
+        }
+        for (int s = 0; s < n; s++) {
+            result[from + s] = Math.min(dp1[s], dp2[s]);
+        }
+    }
+}
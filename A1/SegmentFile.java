@@ -0,0 +1,98 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+// Binary Question2 corridor format, read through memory mapping.
+//
+// Layout, little-endian:
+//   int  magic "Q2SG"
+//   int  version (1)
+//   long x (last segment index)
+//   long switchCost
+//   x + 1 pairs of int: tuenMunTime, castlePeakTime
+// Pairs are interleaved so a solver touches each page once, front to back. Files larger
+// than one mapping are read through consecutive windows.
+public class SegmentFile {
+    static final int MAGIC = 0x47533251; // "Q2SG" read as little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+    static final long WINDOW_BYTES = 1L << 30;
+
+    // Converts the four-line text input to the binary format without holding either road
+    // in memory.
+    public static long convert(String textPath, String binaryPath) throws IOException {
+        try (InputStream tunMunIn = new FileInputStream(textPath);
+             InputStream castlePeakIn = new FileInputStream(textPath);
+             FileChannel out = FileChannel.open(Paths.get(binaryPath),
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            FastScanner tunMun = new FastScanner(tunMunIn);
+            long x = tunMun.nextLong();
+            tunMun.skipLine();
+            long switchCost = tunMun.nextLong();
+            tunMun.skipLine();
+            FastScanner castlePeak = new FastScanner(castlePeakIn);
+            castlePeak.skipLine();
+            castlePeak.skipLine();
+            castlePeak.skipLine();
+
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putLong(x).putLong(switchCost);
+            for (long i = 0; i <= x; i++) {
+                if (buf.remaining() < 8) {
+                    writeFully(out, buf);
+                }
+                buf.putInt(tunMun.nextInt()).putInt(castlePeak.nextInt());
+            }
+            writeFully(out, buf);
+            return x + 1;
+        }
+    }
+
+    public static long minimumTime(String binaryPath) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(binaryPath), StandardOpenOption.READ)) {
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a Question2 segment file: " + binaryPath);
+            }
+            long x = header.getLong();
+            long switchCost = header.getLong();
+            long bytes = (x + 1) * 8;
+            if (ch.size() < HEADER_BYTES + bytes) {
+                throw new EOFException("Segment file truncated: " + binaryPath);
+            }
+
+            long dp1 = 0;
+            long dp2 = 0;
+            boolean first = true;
+            for (long offset = 0; offset < bytes; offset += WINDOW_BYTES) {
+                long length = Math.min(WINDOW_BYTES, bytes - offset);
+                MappedByteBuffer window = ch.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + offset, length);
+                IntBuffer pairs = window.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                int limit = pairs.limit();
+                int k = 0;
+                if (first) {
+                    dp1 = pairs.get(0);
+                    dp2 = pairs.get(1);
+                    k = 2;
+                    first = false;
+                }
+                for (; k < limit; k += 2) {
+                    long next1 = Math.min(dp1, dp2 + switchCost) + pairs.get(k);
+                    long next2 = Math.min(dp2, dp1 + switchCost) + pairs.get(k + 1);
+                    dp1 = next1;
+                    dp2 = next2;
+                }
+            }
+            return Math.min(dp1, dp2);
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+        buf.clear();
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+// Off-heap columnar store of journeys for re-settling history.
+//
+// Each journey is split across primitive columns held in direct buffers: card id, opening
+// balance, route ids, operator codes and fares for both legs. Route names and company codes
+// are dictionary-encoded once when the journey is appended; at scan time each dictionary
+// is mapped to fare-rule ids in a single pass, so settling a row is a handful of array and
+// buffer loads with no objects created. A store can be saved to disk and reopened as
+// read-only memory-mapped columns.
+public class TripStore {
+    static final int MAGIC = 0x54525031; // "TRP1"
+
+    // Column widths in bytes, in file order.
+    static final int[] WIDTHS = {8, 4, 4, 1, 4, 4, 1, 4};
+    static final int CARD = 0, BALANCE = 1, ROUTE1 = 2, OP1 = 3, FARE1 = 4, ROUTE2 = 5, OP2 = 6, FARE2 = 7;
+
+    private final List<String> routes = new ArrayList<>();
+    private final Map<String, Integer> routeIds = new HashMap<>();
+    private final List<String> companies = new ArrayList<>();
+    private final Map<String, Integer> companyIds = new HashMap<>();
+
+    private ByteBuffer[] columns = new ByteBuffer[WIDTHS.length];
+    private int size;
+    private boolean readOnly;
+
+    public TripStore() {
+        for (int c = 0; c < WIDTHS.length; c++) {
+            columns[c] = ByteBuffer.allocateDirect(1024 * WIDTHS[c]).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void append(long cardId, int balance, String route1, String comCode1, int fall1,
+                       String route2, String comCode2, int fall2) {
+        if (readOnly) {
+            throw new IllegalStateException("Store is memory-mapped read-only");
+        }
+        if (size == columns[CARD].capacity() / WIDTHS[CARD]) {
+            grow();
+        }
+        int at4 = offset(size, 4);
+        columns[CARD].putLong(offset(size, 8), cardId);
+        columns[BALANCE].putInt(at4, balance);
+        columns[ROUTE1].putInt(at4, encode(route1, routes, routeIds, Integer.MAX_VALUE));
+        columns[OP1].put(size, (byte) encode(comCode1, companies, companyIds, 256));
+        columns[FARE1].putInt(at4, fall1);
+        columns[ROUTE2].putInt(at4, encode(route2, routes, routeIds, Integer.MAX_VALUE));
+        columns[OP2].put(size, (byte) encode(comCode2, companies, companyIds, 256));
+        columns[FARE2].putInt(at4, fall2);
+        size++;
+    }
+
+    public long cardId(int row) {
+        return columns[CARD].getLong(offset(row, 8));
+    }
+
+    // Settles every journey under the given rules and writes the remaining balance of row i
+    // at out[i].
+    public void settleAll(FareRules rules, int[] out) {
+        // Rule ids are kept as ints: a rules file may declare more than 127 operators.
+        int[] routeClass = new int[routes.size()];
+        for (int i = 0; i < routeClass.length; i++) {
+            routeClass[i] = rules.routeClass(routes.get(i));
+        }
+        int[] opId = new int[companies.size()];
+        for (int i = 0; i < opId.length; i++) {
+            opId[i] = rules.operatorId(companies.get(i));
+        }
+
+        ByteBuffer balance = columns[BALANCE];
+        ByteBuffer route1 = columns[ROUTE1];
+        ByteBuffer op1 = columns[OP1];
+        ByteBuffer fare1 = columns[FARE1];
+        ByteBuffer route2 = columns[ROUTE2];
+        ByteBuffer op2 = columns[OP2];
+        ByteBuffer fare2 = columns[FARE2];
+        for (int i = 0; i < size; i++) {
+            int at = offset(i, 4);
+            int outcome = rules.outcome(opId[op1.get(i) & 0xff], opId[op2.get(i) & 0xff],
+                    routeClass[route1.getInt(at)], routeClass[route2.getInt(at)]);
+            out[i] = rules.apply(balance.getInt(at), outcome, fare1.getInt(at), fare2.getInt(at));
+        }
+    }
+
+    // Loads journeys in the FareBatch input format.
+    public static TripStore load(String path) throws IOException {
+        TripStore store = new TripStore();
+        try (InputStream in = new FileInputStream(path)) {
+            FastScanner scanner = new FastScanner(in, FareBatch.BUFFER_SIZE);
+            while (scanner.hasNext()) {
+                // Short lines are skipped rather than completed from the next line.
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                long cardId = scanner.nextLong();
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                int balance = scanner.nextInt();
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                String route1 = scanner.nextString();
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                String comCode1 = scanner.nextString();
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                int fall1 = scanner.nextInt();
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                String route2 = scanner.nextString();
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                String comCode2 = scanner.nextString();
+                if (scanner.lineEnded()) {
+                    continue;
+                }
+                int fall2 = scanner.nextInt();
+                scanner.skipLine();
+                store.append(cardId, balance, route1, comCode1, fall1, route2, comCode2, fall2);
+            }
+        }
+        return store;
+    }
+
+    public void save(String path) throws IOException {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(MAGIC);
+        header.writeInt(size);
+        writeDictionary(header, routes);
+        writeDictionary(header, companies);
+        header.flush();
+
+        try (FileChannel ch = FileChannel.open(Paths.get(path),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer prefix = ByteBuffer.allocate(4 + headerBytes.size());
+            prefix.putInt(headerBytes.size()).put(headerBytes.toByteArray()).flip();
+            writeFully(ch, prefix);
+            for (int c = 0; c < WIDTHS.length; c++) {
+                ByteBuffer col = columns[c].duplicate().order(columns[c].order());
+                col.clear().limit(offset(size, WIDTHS[c]));
+                // Columns are written in little-endian so files are portable.
+                if (col.order() != ByteOrder.LITTLE_ENDIAN && WIDTHS[c] > 1) {
+                    ByteBuffer le = ByteBuffer.allocateDirect(col.remaining()).order(ByteOrder.LITTLE_ENDIAN);
+                    for (int i = 0; i < size; i++) {
+                        if (WIDTHS[c] == 8) {
+                            le.putLong(col.getLong(offset(i, 8)));
+                        } else {
+                            le.putInt(col.getInt(offset(i, 4)));
+                        }
+                    }
+                    col = le.flip();
+                }
+                writeFully(ch, col);
+            }
+        }
+    }
+
+    // Maps a saved store read-only; rows are read straight from the page cache.
+    public static TripStore open(String path) throws IOException {
+        TripStore store = new TripStore();
+        try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer len = ByteBuffer.allocate(4);
+            readFully(ch, len, 0);
+            int headerLen = len.flip().getInt();
+            ByteBuffer headerBuf = ByteBuffer.allocate(headerLen);
+            readFully(ch, headerBuf, 4);
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBuf.array()));
+            if (header.readInt() != MAGIC) {
+                throw new IOException("Not a trip store: " + path);
+            }
+            store.size = header.readInt();
+            readDictionary(header, store.routes, store.routeIds);
+            readDictionary(header, store.companies, store.companyIds);
+
+            long offset = 4L + headerLen;
+            for (int c = 0; c < WIDTHS.length; c++) {
+                long bytes = (long) store.size * WIDTHS[c];
+                store.columns[c] = ch.map(FileChannel.MapMode.READ_ONLY, offset, bytes).order(ByteOrder.LITTLE_ENDIAN);
+                offset += bytes;
+            }
+        }
+        store.readOnly = true;
+        return store;
+    }
+
+    // Byte offset of a row in a column. Computed in long and checked, so a store that has
+    // outgrown a ByteBuffer's int indices fails instead of writing to a wrapped offset.
+    static int offset(int row, int width) {
+        return Math.toIntExact((long) row * width);
+    }
+
+    private void grow() {
+        int rows;
+        try {
+            rows = Math.multiplyExact(columns[CARD].capacity() / WIDTHS[CARD], 2);
+            for (int width : WIDTHS) {
+                Math.multiplyExact(rows, width);
+            }
+        } catch (ArithmeticException ex) {
+            throw new IllegalStateException("Trip store is full at " + size + " journeys", ex);
+        }
+        for (int c = 0; c < WIDTHS.length; c++) {
+            ByteBuffer old = columns[c];
+            ByteBuffer grown = ByteBuffer.allocateDirect(rows * WIDTHS[c]).order(ByteOrder.nativeOrder());
+            old.clear();
+            grown.put(old).clear();
+            columns[c] = grown;
+        }
+    }
+
+    private static int encode(String value, List<String> dictionary, Map<String, Integer> ids, int limit) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            if (dictionary.size() == limit) {
+                throw new IllegalStateException("Dictionary full at " + limit + " entries");
+            }
+            id = dictionary.size();
+            dictionary.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    private static void writeDictionary(DataOutputStream out, List<String> dictionary) throws IOException {
+        out.writeInt(dictionary.size());
+        for (String s : dictionary) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static void readDictionary(DataInputStream in, List<String> dictionary, Map<String, Integer> ids)
+            throws IOException {
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            String s = in.readUTF();
+            ids.put(s, dictionary.size());
+            dictionary.add(s);
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    // Re-settles a saved store and writes "cardId remainingBalance" lines.
+    public static int resettle(String storePath, String outPath, FareRules rules) throws IOException {
+        TripStore store = open(storePath);
+        int[] results = new int[store.size()];
+        store.settleAll(rules, results);
+        byte[] digits = new byte[20];
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outPath), FareBatch.BUFFER_SIZE)) {
+            for (int i = 0; i < results.length; i++) {
+                FareBatch.writeLong(out, store.cardId(i), digits);
+                out.write(' ');
+                FareBatch.writeLong(out, results[i], digits);
+                out.write('\n');
+            }
+        }
+        return results.length;
+    }
+}
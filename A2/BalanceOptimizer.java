@@ -0,0 +1,282 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Tunes OfficeCombat2 weapon settings towards a target guard win rate.
+ *
+ * A setting fixes the SuperGun power used by every guard, the BadGun power used by every
+ * student and a skill bonus added to every guard. Its guard win rate is measured over a
+ * fixed sample of (guard, student) pairs from a roster with the non-logging
+ * CombatResolver, and memoised per setting so settings revisited by the search are not
+ * resolved twice. The win rate only rises with SuperGun power and guard skill and only
+ * falls with BadGun power, so each parameter is tuned in turn by a k-ary search that
+ * evaluates its k probe settings in parallel and keeps the bracket around the target.
+ */
+public class BalanceOptimizer {
+	private static final int PROBES = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+	private final Tournament.Entrant[] roster;
+	private final int[] guards;
+	private final int[] students;
+	private final ForkJoinPool pool;
+	private final ConcurrentHashMap<Setting, Double> rates = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates an optimizer over a sample of roster pairings.
+	 *
+	 * @param roster the entrants; each can play either side
+	 * @param samplePairs how many (guard, student) pairs to sample
+	 * @param seed the sampling seed
+	 * @param pool the pool used to evaluate candidate settings
+	 */
+	public BalanceOptimizer(List<Tournament.Entrant> roster, int samplePairs, long seed, ForkJoinPool pool) {
+		if (roster.size() < 2) {
+			throw new IllegalArgumentException("Need at least two entrants");
+		}
+		this.roster = roster.toArray(new Tournament.Entrant[0]);
+		this.guards = new int[samplePairs];
+		this.students = new int[samplePairs];
+		Random rnd = new Random(seed);
+		for (int k = 0; k < samplePairs; k++) {
+			int g = rnd.nextInt(this.roster.length);
+			int s = rnd.nextInt(this.roster.length - 1);
+			this.guards[k] = g;
+			this.students[k] = s >= g ? s + 1 : s;
+		}
+		this.pool = pool;
+	}
+
+	/**
+	 * Measures the guard win rate of a setting over the sampled pairs. Guard skill plus the
+	 * bonus is clamped to the int range only, so a negative bonus can take skill below zero
+	 * as OfficeCombat2 allows.
+	 *
+	 * @param setting the setting to evaluate
+	 * @return the fraction of sampled fights the guard wins
+	 */
+	public double guardWinRate(Setting setting) {
+		Double known = this.rates.get(setting);
+		if (known != null) {
+			return known;
+		}
+		int wins = 0;
+		for (int k = 0; k < this.guards.length; k++) {
+			Tournament.Entrant g = this.roster[this.guards[k]];
+			Tournament.Entrant s = this.roster[this.students[k]];
+			long guardSkill = CombatResolver.saturate((long) g.getSkill() + setting.getSkillBonus());
+			long studentDamage = Math.max(0, CombatResolver.saturate((long) s.getSkill() + setting.getBadPower()) - 1);
+			CombatResolver.Outcome o = CombatResolver.resolveGuardStudent(g.getEnergy(), guardSkill,
+					setting.getSuperPower(), s.getEnergy(), studentDamage);
+			if (o.getWinner() == CombatResolver.FIRST) {
+				wins++;
+			}
+		}
+		double rate = wins / (double) this.guards.length;
+		// A concurrent evaluation of the same setting computes the same rate, so either may win.
+		this.rates.putIfAbsent(setting, rate);
+		return rate;
+	}
+
+	/**
+	 * Tunes SuperGun power, then BadGun power, then guard skill bonus, stopping as soon as the
+	 * win rate is within tolerance of the target.
+	 *
+	 * @param start the starting setting
+	 * @param target the desired guard win rate
+	 * @param tolerance the accepted distance from the target
+	 * @param maxPower the largest weapon power to try
+	 * @param maxSkillBonus the largest skill bonus, in either direction, to try
+	 * @return the best setting found
+	 */
+	public Setting optimize(Setting start, double target, double tolerance, int maxPower, int maxSkillBonus) {
+		Setting best = start;
+		double bestRate = guardWinRate(best);
+		for (int parameter = 0; parameter < 3 && Math.abs(bestRate - target) > tolerance; parameter++) {
+			int lo = parameter == 2 ? -maxSkillBonus : 0;
+			int hi = parameter == 2 ? maxSkillBonus : maxPower;
+			Setting tuned = search(best, parameter, lo, hi, target);
+			double rate = guardWinRate(tuned);
+			if (Math.abs(rate - target) < Math.abs(bestRate - target)) {
+				best = tuned;
+				bestRate = rate;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Narrows one parameter's range with parallel k-ary search until every remaining value
+	 * can be probed at once, then returns the setting closest to the target.
+	 */
+	private Setting search(Setting base, int parameter, int lo, int hi, double target) {
+		// BadGun power lowers the guard win rate; flip the comparison for it.
+		boolean rising = parameter != 1;
+		while (true) {
+			int[] values = probes(lo, hi);
+			double[] rates = evaluate(base, parameter, values);
+			if (hi - lo + 1 <= PROBES) {
+				int bestIndex = 0;
+				for (int i = 1; i < values.length; i++) {
+					if (Math.abs(rates[i] - target) < Math.abs(rates[bestIndex] - target)) {
+						bestIndex = i;
+					}
+				}
+				return base.with(parameter, values[bestIndex]);
+			}
+			// Keep the bracket [values[i - 1], values[i]] in which the rate crosses the target.
+			int i = 0;
+			while (i < values.length && (rising ? rates[i] < target : rates[i] > target)) {
+				i++;
+			}
+			if (i == 0) {
+				hi = values[0];
+			}
+			else if (i == values.length) {
+				lo = values[values.length - 1];
+			}
+			else {
+				lo = values[i - 1];
+				hi = values[i];
+			}
+		}
+	}
+
+	private double[] evaluate(Setting base, int parameter, int[] values) {
+		try {
+			return this.pool.submit(() -> Arrays.stream(values).parallel()
+					.mapToDouble(v -> guardWinRate(base.with(parameter, v))).toArray()).get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Optimisation interrupted", ex);
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException("Optimisation failed", ex.getCause());
+		}
+	}
+
+	private static int[] probes(int lo, int hi) {
+		long span = (long) hi - lo;
+		if (span + 1 <= PROBES) {
+			return IntStream.rangeClosed(lo, hi).toArray();
+		}
+		int[] values = new int[PROBES];
+		for (int i = 0; i < PROBES; i++) {
+			values[i] = (int) (lo + span * i / (PROBES - 1));
+		}
+		return values;
+	}
+
+	/**
+	 * Runs the optimizer on a roster file.
+	 *
+	 * @param args roster file, target guard win rate, optional sample size, optional max weapon power
+	 * @throws IOException if the roster cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: java BalanceOptimizer <roster> <targetWinRate> [samplePairs] [maxPower]");
+			return;
+		}
+		List<Tournament.Entrant> roster = Tournament.loadRoster(args[0]);
+		double target = Double.parseDouble(args[1]);
+		int samplePairs = args.length >= 3 ? Integer.parseInt(args[2]) : 100000;
+		int maxPower = args.length >= 4 ? Integer.parseInt(args[3]) : 1000;
+
+		long start = System.nanoTime();
+		BalanceOptimizer optimizer = new BalanceOptimizer(roster, samplePairs, 2396, ForkJoinPool.commonPool());
+		Setting initial = new Setting(roster.get(0).getPower(), roster.get(0).getPower(), 0);
+		System.out.printf("Initial %s: guard win rate %.4f%n", initial, optimizer.guardWinRate(initial));
+		Setting best = optimizer.optimize(initial, target, 0.005, maxPower, 100);
+		System.out.printf("Best %s: guard win rate %.4f (%d ms)%n", best, optimizer.guardWinRate(best),
+				(System.nanoTime() - start) / 1000000);
+	}
+
+	/**
+	 * One candidate weapon balance.
+	 */
+	public static final class Setting {
+		private final int superPower;
+		private final int badPower;
+		private final int skillBonus;
+
+		/**
+		 * Creates a setting.
+		 *
+		 * @param superPower the SuperGun power for every guard
+		 * @param badPower the BadGun power for every student
+		 * @param skillBonus the skill added to every guard
+		 */
+		public Setting(int superPower, int badPower, int skillBonus) {
+			this.superPower = superPower;
+			this.badPower = badPower;
+			this.skillBonus = skillBonus;
+		}
+
+		/**
+		 * Retrieves the SuperGun power.
+		 *
+		 * @return the power value
+		 */
+		public int getSuperPower() {
+			return this.superPower;
+		}
+
+		/**
+		 * Retrieves the BadGun power.
+		 *
+		 * @return the power value
+		 */
+		public int getBadPower() {
+			return this.badPower;
+		}
+
+		/**
+		 * Retrieves the guard skill bonus.
+		 *
+		 * @return the bonus
+		 */
+		public int getSkillBonus() {
+			return this.skillBonus;
+		}
+
+		/**
+		 * Copies this setting with one parameter replaced.
+		 *
+		 * @param parameter 0 for SuperGun power, 1 for BadGun power, 2 for skill bonus
+		 * @param value the new value
+		 * @return the new setting
+		 */
+		Setting with(int parameter, int value) {
+			switch (parameter) {
+				case 0:
+					return new Setting(value, this.badPower, this.skillBonus);
+				case 1:
+					return new Setting(this.superPower, value, this.skillBonus);
+				default:
+					return new Setting(this.superPower, this.badPower, value);
+			}
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Setting)) {
+				return false;
+			}
+			Setting that = (Setting) other;
+			return this.superPower == that.superPower && this.badPower == that.badPower
+					&& this.skillBonus == that.skillBonus;
+		}
+
+		@Override
+		public int hashCode() {
+			return (this.superPower * 31 + this.badPower) * 31 + this.skillBonus;
+		}
+
+		@Override
+		public String toString() {
+			return "SuperGun power " + this.superPower + ", BadGun power " + this.badPower
+					+ ", guard skill bonus " + this.skillBonus;
+		}
+	}
+}
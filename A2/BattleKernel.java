@@ -0,0 +1,305 @@
+import java.util.*;
+
+/**
+ * Structure-of-arrays kernel that steps many office combat fights in lockstep.
+ *
+ * Fight state lives in parallel primitive arrays instead of Character and Weapon objects.
+ * Every fight starts at round zero, so the round parity, hide and boost schedule is the same
+ * for all of them and each step is one branch-free loop over contiguous arrays. A fight
+ * that ends is frozen by a per-fight mask that also stops its round counter, and finished
+ * fights are only swapped to the end of the arrays every RETIRE_INTERVAL rounds, so the
+ * per-round loops carry no branches and later steps still skip most finished fights.
+ */
+public class BattleKernel {
+	/** Rounds between compactions of finished fights; a multiple of the six-round cycle. */
+	static final int RETIRE_INTERVAL = 24;
+
+	private final boolean hideAndBoost;
+
+	private long[] energy1;
+	private long[] skill1;
+	private long[] power1;
+	private long[] energy2;
+	private long[] damage2;
+	private byte[] hiding;
+	private long[] alive;
+	private long[] played;
+	private int[] id;
+	private int live;
+	private int size;
+
+	private byte[] winner;
+	private long[] rounds;
+	private long[] finalEnergy1;
+	private long[] finalEnergy2;
+
+	/**
+	 * Creates an empty kernel.
+	 *
+	 * @param capacity the expected number of fights
+	 * @param hideAndBoost true for OfficeCombat2 rules (the second fighter hides and the
+	 *        first fighter's gun doubles), false for OfficeCombat1 rules
+	 */
+	public BattleKernel(int capacity, boolean hideAndBoost) {
+		this.hideAndBoost = hideAndBoost;
+		capacity = Math.max(1, capacity);
+		this.energy1 = new long[capacity];
+		this.skill1 = new long[capacity];
+		this.power1 = new long[capacity];
+		this.energy2 = new long[capacity];
+		this.damage2 = new long[capacity];
+		this.hiding = new byte[capacity];
+		this.alive = new long[capacity];
+		this.played = new long[capacity];
+		this.id = new int[capacity];
+		this.winner = new byte[capacity];
+		this.rounds = new long[capacity];
+		this.finalEnergy1 = new long[capacity];
+		this.finalEnergy2 = new long[capacity];
+	}
+
+	/**
+	 * Adds a fight. The first fighter opens and deals skill plus power per hit; the second
+	 * deals a fixed damage per hit.
+	 *
+	 * @param energy1 the first fighter's energy
+	 * @param skill1 the first fighter's skill level
+	 * @param power1 the first fighter's weapon power
+	 * @param energy2 the second fighter's energy
+	 * @param damage2 the second fighter's damage per hit
+	 * @return the fight id
+	 */
+	public int add(long energy1, long skill1, long power1, long energy2, long damage2) {
+		if (this.live != this.size) {
+			throw new IllegalStateException("Cannot add fights after run");
+		}
+		if (this.size == this.id.length) {
+			grow();
+		}
+		int k = this.size++;
+		this.energy1[k] = energy1;
+		this.skill1[k] = skill1;
+		this.power1[k] = CombatResolver.saturate(power1);
+		this.energy2[k] = energy2;
+		this.damage2[k] = CombatResolver.saturate(damage2);
+		this.alive[k] = energy1 > 0 && energy2 > 0 ? -1L : 0L;
+		this.id[k] = k;
+		this.live = this.size;
+		return k;
+	}
+
+	/**
+	 * Steps every fight until it ends or the round cap is reached. Fights that can never end,
+	 * or are still running at the cap, are reported as NO_WINNER.
+	 *
+	 * @param maxRounds the round cap
+	 */
+	public void run(long maxRounds) {
+		retireFinished(0);
+		for (long round = 0; round < maxRounds && this.live > 0; round++) {
+			int n = this.live;
+			long[] live = this.alive;
+			long[] count = this.played;
+			// Masks are all ones for a running fight and zero once it has ended, so a finished
+			// fight keeps its final energies and round count until it is retired.
+			if (round % 2 == 0) {
+				long[] e2 = this.energy2;
+				long[] s1 = this.skill1;
+				long[] p1 = this.power1;
+				byte[] hide = this.hiding;
+				for (int k = 0; k < n; k++) {
+					long a = live[k];
+					long damage = Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, s1[k] + p1[k]));
+					// A hiding fighter takes nothing: hide - 1 is 0 when hiding, all ones otherwise.
+					long e = e2[k] - (damage & (hide[k] - 1L) & a);
+					e2[k] = e;
+					count[k] -= a;
+					live[k] = a & (-e >> 63);
+				}
+				if (this.hideAndBoost) {
+					// The hide is used up by this hit and renewed on every third round.
+					Arrays.fill(hide, 0, n, round % 3 == 0 ? (byte) 1 : (byte) 0);
+				}
+			}
+			else {
+				long[] e1 = this.energy1;
+				long[] d2 = this.damage2;
+				for (int k = 0; k < n; k++) {
+					long a = live[k];
+					long e = e1[k] - (d2[k] & a);
+					e1[k] = e;
+					count[k] -= a;
+					live[k] = a & (-e >> 63);
+				}
+				if (this.hideAndBoost && round % 3 == 0) {
+					long[] p1 = this.power1;
+					for (int k = 0; k < n; k++) {
+						p1[k] = Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, p1[k] * 2));
+					}
+				}
+			}
+			if ((round + 1) % RETIRE_INTERVAL == 0) {
+				retireFinished(round + 1);
+			}
+		}
+		retireFinished(-1);
+		for (int k = 0; k < this.live; k++) {
+			record(k, CombatResolver.NO_WINNER, maxRounds);
+		}
+		this.live = 0;
+	}
+
+	/**
+	 * Retrieves the winner of a fight.
+	 *
+	 * @param fight the fight id
+	 * @return CombatResolver.FIRST, SECOND or NO_WINNER
+	 */
+	public int getWinner(int fight) {
+		return this.winner[fight];
+	}
+
+	/**
+	 * Retrieves the number of rounds a fight lasted.
+	 *
+	 * @param fight the fight id
+	 * @return the round count
+	 */
+	public long getRounds(int fight) {
+		return this.rounds[fight];
+	}
+
+	/**
+	 * Retrieves the first fighter's remaining energy.
+	 *
+	 * @param fight the fight id
+	 * @return the energy level
+	 */
+	public long getEnergy1(int fight) {
+		return this.finalEnergy1[fight];
+	}
+
+	/**
+	 * Retrieves the second fighter's remaining energy.
+	 *
+	 * @param fight the fight id
+	 * @return the energy level
+	 */
+	public long getEnergy2(int fight) {
+		return this.finalEnergy2[fight];
+	}
+
+	/**
+	 * Records every live fight that has ended and swaps it behind the live range.
+	 *
+	 * @param round the number of rounds played so far, a multiple of six to also retire
+	 *        stalemates, or -1 to retire only fights that have ended
+	 */
+	private void retireFinished(long round) {
+		boolean checkStalemate = round >= 0 && round % 6 == 0;
+		int k = 0;
+		while (k < this.live) {
+			if (this.alive[k] == 0) {
+				record(k, this.energy1[k] <= 0 ? CombatResolver.SECOND : CombatResolver.FIRST, this.played[k]);
+				swap(k, --this.live);
+			}
+			else if (checkStalemate && isStalemate(k)) {
+				record(k, CombatResolver.NO_WINNER, round);
+				swap(k, --this.live);
+			}
+			else {
+				k++;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a fight can never end: neither side deals damage and boosting can no
+	 * longer change the gun power.
+	 *
+	 * @param k the array slot of a live fight
+	 * @return true if the fight is a stalemate
+	 */
+	private boolean isStalemate(int k) {
+		long power = this.power1[k];
+		boolean stablePower = !this.hideAndBoost || CombatResolver.saturate(power * 2) == power;
+		return stablePower && this.damage2[k] <= 0 && CombatResolver.saturate(this.skill1[k] + power) <= 0;
+	}
+
+	private void record(int k, int result, long round) {
+		int fight = this.id[k];
+		this.winner[fight] = (byte) result;
+		this.rounds[fight] = round;
+		this.finalEnergy1[fight] = this.energy1[k];
+		this.finalEnergy2[fight] = this.energy2[k];
+	}
+
+	private void swap(int a, int b) {
+		long t;
+		t = this.energy1[a]; this.energy1[a] = this.energy1[b]; this.energy1[b] = t;
+		t = this.skill1[a]; this.skill1[a] = this.skill1[b]; this.skill1[b] = t;
+		t = this.power1[a]; this.power1[a] = this.power1[b]; this.power1[b] = t;
+		t = this.energy2[a]; this.energy2[a] = this.energy2[b]; this.energy2[b] = t;
+		t = this.damage2[a]; this.damage2[a] = this.damage2[b]; this.damage2[b] = t;
+		t = this.alive[a]; this.alive[a] = this.alive[b]; this.alive[b] = t;
+		t = this.played[a]; this.played[a] = this.played[b]; this.played[b] = t;
+		byte h = this.hiding[a]; this.hiding[a] = this.hiding[b]; this.hiding[b] = h;
+		int i = this.id[a]; this.id[a] = this.id[b]; this.id[b] = i;
+	}
+
+	private void grow() {
+		int capacity = this.id.length * 2;
+		this.energy1 = Arrays.copyOf(this.energy1, capacity);
+		this.skill1 = Arrays.copyOf(this.skill1, capacity);
+		this.power1 = Arrays.copyOf(this.power1, capacity);
+		this.energy2 = Arrays.copyOf(this.energy2, capacity);
+		this.damage2 = Arrays.copyOf(this.damage2, capacity);
+		this.hiding = Arrays.copyOf(this.hiding, capacity);
+		this.alive = Arrays.copyOf(this.alive, capacity);
+		this.played = Arrays.copyOf(this.played, capacity);
+		this.id = Arrays.copyOf(this.id, capacity);
+		this.winner = Arrays.copyOf(this.winner, capacity);
+		this.rounds = Arrays.copyOf(this.rounds, capacity);
+		this.finalEnergy1 = Arrays.copyOf(this.finalEnergy1, capacity);
+		this.finalEnergy2 = Arrays.copyOf(this.finalEnergy2, capacity);
+	}
+
+	/**
+	 * Simulates random OfficeCombat2 fights with the kernel, checks them against
+	 * CombatResolver and reports the time taken by each.
+	 *
+	 * @param args optional number of fights (default one million)
+	 */
+	public static void main(String[] args) {
+		int fights = args.length >= 1 ? Integer.parseInt(args[0]) : 1000000;
+		Random rnd = new Random(2396);
+		long[][] params = new long[fights][];
+		BattleKernel kernel = new BattleKernel(fights, true);
+		for (int f = 0; f < fights; f++) {
+			long studentSkill = rnd.nextInt(10);
+			long badPower = rnd.nextInt(10);
+			params[f] = new long[] {1 + rnd.nextInt(500), rnd.nextInt(10), rnd.nextInt(4), 1 + rnd.nextInt(500),
+					Math.max(0, studentSkill + badPower - 1)};
+			kernel.add(params[f][0], params[f][1], params[f][2], params[f][3], params[f][4]);
+		}
+
+		long start = System.nanoTime();
+		kernel.run(1000000);
+		long kernelTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		int mismatches = 0;
+		for (int f = 0; f < fights; f++) {
+			long[] p = params[f];
+			CombatResolver.Outcome o = CombatResolver.resolveGuardStudent(p[0], p[1], p[2], p[3], p[4]);
+			if (o.getWinner() != kernel.getWinner(f)
+					|| (o.getWinner() != CombatResolver.NO_WINNER && o.getRounds() != kernel.getRounds(f))) {
+				mismatches++;
+			}
+		}
+		long resolverTime = System.nanoTime() - start;
+		System.out.println("Kernel: " + fights + " fights in " + (kernelTime / 1000000) + " ms.");
+		System.out.println("Resolver: " + fights + " fights in " + (resolverTime / 1000000) + " ms.");
+		System.out.println("Mismatches: " + mismatches + ".");
+	}
+}
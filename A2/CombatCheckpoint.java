@@ -0,0 +1,181 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Periodic checkpoints of long OfficeCombat2 fights.
+ *
+ * A checkpoint is a single fixed-size record: a magic number followed by the fight state
+ * (skill, damage, both energies, gun power, round counter and the hiding flag). It is written
+ * to a sibling temporary file and moved over the previous checkpoint, so a crash while
+ * saving leaves the last good checkpoint in place. Stepping is deterministic, so resuming
+ * from a checkpoint plays exactly the rounds the interrupted run would have played.
+ */
+public class CombatCheckpoint {
+	/** Marks a fight checkpoint file ("OCF1"). */
+	static final int FIGHT_MAGIC = 0x4f434631;
+	/** Default number of rounds between checkpoints. */
+	public static final long DEFAULT_INTERVAL = 4000000;
+
+	private final Path file;
+	private final long interval;
+	private final ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + CombatResolver.GuardStudentFight.STATE_BYTES);
+
+	/**
+	 * Creates a checkpointer for one fight.
+	 *
+	 * @param file the checkpoint file
+	 * @param interval the number of rounds between checkpoints
+	 */
+	public CombatCheckpoint(Path file, long interval) {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive");
+		}
+		this.file = file;
+		this.interval = interval;
+	}
+
+	/**
+	 * Steps a fight round by round, saving a checkpoint every interval rounds.
+	 *
+	 * The checkpoint is deleted once the fight is over or has reached a state from which
+	 * neither side can ever lose; it is kept when the round budget runs out so the fight can
+	 * be resumed later.
+	 *
+	 * @param fight the fight to advance
+	 * @param maxRounds the largest round counter to reach in this run
+	 * @return true if the fight is settled, with outcome() giving NO_WINNER for an endless one
+	 * @throws IOException if a checkpoint cannot be written
+	 */
+	public boolean run(CombatResolver.GuardStudentFight fight, long maxRounds) throws IOException {
+		long next = fight.getRound() + this.interval;
+		while (!fight.isOver() && !fight.isEndless() && fight.getRound() < maxRounds) {
+			// Segments end on cycle boundaries, the only rounds where isEndless can tell.
+			long end = Math.min(maxRounds, next + (6 - next % 6) % 6);
+			while (!fight.isOver() && fight.getRound() < end) {
+				fight.step();
+			}
+			if (fight.getRound() >= next && !fight.isOver() && !fight.isEndless()) {
+				save(fight);
+				next = fight.getRound() + this.interval;
+			}
+		}
+		if (fight.isOver() || fight.isEndless()) {
+			Files.deleteIfExists(this.file);
+			return true;
+		}
+		save(fight);
+		return false;
+	}
+
+	/**
+	 * Writes a checkpoint, replacing the previous one atomically.
+	 *
+	 * @param fight the fight to save
+	 * @throws IOException if the checkpoint cannot be written
+	 */
+	public void save(CombatResolver.GuardStudentFight fight) throws IOException {
+		this.record.clear();
+		this.record.putInt(FIGHT_MAGIC);
+		fight.writeState(this.record);
+		replace(this.file, this.record.array());
+	}
+
+	/**
+	 * Reads the fight saved in a checkpoint file.
+	 *
+	 * @param file the checkpoint file
+	 * @return the restored fight, or null if there is no checkpoint
+	 * @throws IOException if the file exists but is not a fight checkpoint
+	 */
+	public static CombatResolver.GuardStudentFight load(Path file) throws IOException {
+		if (!Files.exists(file)) {
+			return null;
+		}
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+		if (in.remaining() != Integer.BYTES + CombatResolver.GuardStudentFight.STATE_BYTES
+				|| in.getInt() != FIGHT_MAGIC) {
+			throw new IOException(file + " is not a fight checkpoint");
+		}
+		return CombatResolver.GuardStudentFight.readState(in);
+	}
+
+	/**
+	 * Replaces a file's contents so readers see either the old or the new bytes.
+	 *
+	 * @param file the file to replace
+	 * @param bytes the new contents
+	 * @throws IOException if writing or moving fails
+	 */
+	static void replace(Path file, byte[] bytes) throws IOException {
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		// Force the data to disk first, or an OS crash could keep the rename but lose the bytes.
+		try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer data = ByteBuffer.wrap(bytes);
+			while (data.hasRemaining()) {
+				ch.write(data);
+			}
+			ch.force(true);
+		}
+		try {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException ex) {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Plays an OfficeCombat2 fight round by round with checkpoints, resuming from the
+	 * checkpoint file if it exists and otherwise reading the fight from standard input.
+	 *
+	 * @param args checkpoint file, optional round interval, optional round budget for this run
+	 * @throws IOException if reading input or writing checkpoints fails
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: java CombatCheckpoint <checkpoint> [interval] [maxRounds]");
+			return;
+		}
+		Path file = Paths.get(args[0]);
+		long interval = args.length >= 2 ? Long.parseLong(args[1]) : DEFAULT_INTERVAL;
+		long maxRounds = args.length >= 3 ? Long.parseLong(args[2]) : Long.MAX_VALUE;
+
+		CombatResolver.GuardStudentFight fight = load(file);
+		if (fight != null) {
+			System.out.println("Resuming from round " + fight.getRound());
+		}
+		else {
+			BufferedReader inData = new BufferedReader(new InputStreamReader(System.in));
+			String c1_info[] = inData.readLine().split(" ");
+			String c2_info[] = inData.readLine().split(" ");
+			String w1_info[] = inData.readLine().split(" ");
+			String w2_info[] = inData.readLine().split(" ");
+			// Same input layout as OfficeCombat2: name energy skill, then weapon name and power
+			int guardEnergy = Integer.parseInt(c1_info[1]);
+			int guardSkill = Integer.parseInt(c1_info[2]);
+			int studentEnergy = Integer.parseInt(c2_info[1]);
+			int studentSkill = Integer.parseInt(c2_info[2]);
+			long studentDamage = Math.max(0, CombatResolver.saturate((long) studentSkill + Integer.parseInt(w2_info[1])) - 1);
+			fight = new CombatResolver.GuardStudentFight(guardEnergy, guardSkill, Integer.parseInt(w1_info[1]),
+					studentEnergy, studentDamage);
+		}
+
+		long start = System.nanoTime();
+		boolean finished = new CombatCheckpoint(file, interval).run(fight, maxRounds);
+		long elapsed = (System.nanoTime() - start) / 1000000;
+		if (!finished) {
+			System.out.println("Paused at round " + fight.getRound() + " after " + elapsed + " ms; checkpoint saved to " + file);
+			return;
+		}
+		CombatResolver.Outcome outcome = fight.outcome();
+		if (outcome.getWinner() == CombatResolver.NO_WINNER) {
+			System.out.println("Neither side can win; the fight never ends (stopped at round "
+					+ fight.getRound() + ", " + elapsed + " ms).");
+			return;
+		}
+		System.out.println((outcome.getWinner() == CombatResolver.FIRST ? "Security guard" : "Student")
+				+ " wins after " + outcome.getRounds() + " rounds (" + elapsed + " ms).");
+	}
+}
@@ -0,0 +1,182 @@
+import java.io.*;
+
+/**
+ * Buffered combat event log that defers text formatting.
+ *
+ * Each round records compact events (event type, fighter, amounts) into a reusable long
+ * array. Text is rendered only when the buffer fills or a plain line is written, through one
+ * large buffered writer. At QUIET verbosity per-round events are dropped without being
+ * recorded at all.
+ */
+public class CombatLog {
+	/** Per-round events are discarded; only plain lines are written. */
+	public static final int QUIET = 0;
+	/** Every per-round event is written. */
+	public static final int ROUNDS = 1;
+
+	private static final int ATTACK = 0;
+	private static final int HURT = 1;
+	private static final int DODGE = 2;
+	private static final int BOOST = 3;
+	private static final int EVENT_LONGS = 3;
+
+	private final Writer out;
+	private final int verbosity;
+	private final String[] fighters;
+	private final String[] weapons;
+	private final String hurtPhrase;
+	private final long[] events;
+	private int used;
+
+	/**
+	 * Creates a log.
+	 *
+	 * @param out the destination, written only in large chunks
+	 * @param verbosity QUIET or ROUNDS
+	 * @param fighters fighter names, indexed by fighter number
+	 * @param weapons weapon names, indexed by fighter number
+	 * @param hurtPhrase the text between a fighter's name and the damage, e.g. " takes a hurt of "
+	 * @param capacity the number of events buffered before rendering
+	 */
+	public CombatLog(Writer out, int verbosity, String[] fighters, String[] weapons, String hurtPhrase, int capacity) {
+		this.out = out;
+		this.verbosity = verbosity;
+		this.fighters = fighters.clone();
+		this.weapons = weapons.clone();
+		this.hurtPhrase = hurtPhrase;
+		this.events = new long[capacity * EVENT_LONGS];
+	}
+
+	/**
+	 * Creates a log on standard output with a 64 KiB writer and a 4096-event buffer.
+	 *
+	 * @param verbosity QUIET or ROUNDS
+	 * @param fighters fighter names, indexed by fighter number
+	 * @param weapons weapon names, indexed by fighter number
+	 * @param hurtPhrase the text between a fighter's name and the damage
+	 * @return the log
+	 */
+	public static CombatLog toStandardOutput(int verbosity, String[] fighters, String[] weapons, String hurtPhrase) {
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+		return new CombatLog(out, verbosity, fighters, weapons, hurtPhrase, 4096);
+	}
+
+	/**
+	 * Retrieves the verbosity.
+	 *
+	 * @return QUIET or ROUNDS
+	 */
+	public int getVerbosity() {
+		return this.verbosity;
+	}
+
+	/**
+	 * Records that a fighter attacks with its weapon.
+	 *
+	 * @param fighter the attacker
+	 */
+	public void attack(int fighter) {
+		record(ATTACK, fighter, 0, 0);
+	}
+
+	/**
+	 * Records that a fighter takes damage.
+	 *
+	 * @param fighter the fighter hurt
+	 * @param amount the damage taken
+	 * @param remaining the energy left
+	 */
+	public void hurt(int fighter, long amount, long remaining) {
+		record(HURT, fighter, amount, remaining);
+	}
+
+	/**
+	 * Records that a fighter hides from an attack.
+	 *
+	 * @param fighter the fighter hiding
+	 */
+	public void dodge(int fighter) {
+		record(DODGE, fighter, 0, 0);
+	}
+
+	/**
+	 * Records that a fighter boosts its weapon.
+	 *
+	 * @param fighter the fighter boosting
+	 */
+	public void boost(int fighter) {
+		record(BOOST, fighter, 0, 0);
+	}
+
+	/**
+	 * Writes a plain line after any pending events. Lines are written at every verbosity.
+	 *
+	 * @param text the line
+	 * @throws IOException if writing fails
+	 */
+	public void line(String text) throws IOException {
+		render();
+		this.out.write(text);
+		this.out.write(System.lineSeparator());
+	}
+
+	/**
+	 * Renders pending events and flushes the writer.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	public void flush() throws IOException {
+		render();
+		this.out.flush();
+	}
+
+	private void record(int type, int fighter, long a, long b) {
+		if (this.verbosity == QUIET) {
+			return;
+		}
+		if (this.used == this.events.length) {
+			try {
+				render();
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+		this.events[this.used] = ((long) type << 32) | fighter;
+		this.events[this.used + 1] = a;
+		this.events[this.used + 2] = b;
+		this.used += EVENT_LONGS;
+	}
+
+	private void render() throws IOException {
+		String nl = System.lineSeparator();
+		for (int i = 0; i < this.used; i += EVENT_LONGS) {
+			int type = (int) (this.events[i] >>> 32);
+			String name = this.fighters[(int) this.events[i]];
+			this.out.write(name);
+			switch (type) {
+				case ATTACK:
+					this.out.write(" makes an attack by ");
+					this.out.write(this.weapons[(int) this.events[i]]);
+					this.out.write("!");
+					break;
+				case HURT:
+					this.out.write(this.hurtPhrase);
+					this.out.write(Long.toString(this.events[i + 1]));
+					this.out.write("! Remaining energy becomes ");
+					this.out.write(Long.toString(this.events[i + 2]));
+					this.out.write(".");
+					break;
+				case DODGE:
+					this.out.write(" hides from the attack!");
+					break;
+				default:
+					this.out.write(" boost the ");
+					this.out.write(this.weapons[(int) this.events[i]]);
+					this.out.write("!");
+					break;
+			}
+			this.out.write(nl);
+		}
+		this.used = 0;
+	}
+}
@@ -0,0 +1,335 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Resolves office combat duels arithmetically instead of hit by hit.
+ */
+public class CombatResolver {
+	/** Outcome code when neither side can ever lose. */
+	public static final int NO_WINNER = 0;
+	/** Outcome code when the first (opening) fighter wins. */
+	public static final int FIRST = 1;
+	/** Outcome code when the second fighter wins. */
+	public static final int SECOND = 2;
+
+	/**
+	 * Final state of a resolved duel.
+	 */
+	public static final class Outcome {
+		private final int winner;
+		private final long rounds;
+		private final long energy1;
+		private final long energy2;
+
+		/**
+		 * Creates an outcome.
+		 *
+		 * @param winner FIRST, SECOND or NO_WINNER
+		 * @param rounds the number of rounds fought, or Long.MAX_VALUE if the duel never ends
+		 * @param energy1 the first fighter's remaining energy
+		 * @param energy2 the second fighter's remaining energy
+		 */
+		public Outcome(int winner, long rounds, long energy1, long energy2) {
+			this.winner = winner;
+			this.rounds = rounds;
+			this.energy1 = energy1;
+			this.energy2 = energy2;
+		}
+
+		/**
+		 * Retrieves the winner code.
+		 *
+		 * @return FIRST, SECOND or NO_WINNER
+		 */
+		public int getWinner() {
+			return this.winner;
+		}
+
+		/**
+		 * Retrieves the number of rounds fought.
+		 *
+		 * @return the round count, or Long.MAX_VALUE for an endless duel
+		 */
+		public long getRounds() {
+			return this.rounds;
+		}
+
+		/**
+		 * Retrieves the first fighter's remaining energy.
+		 *
+		 * @return the energy level
+		 */
+		public long getEnergy1() {
+			return this.energy1;
+		}
+
+		/**
+		 * Retrieves the second fighter's remaining energy.
+		 *
+		 * @return the energy level
+		 */
+		public long getEnergy2() {
+			return this.energy2;
+		}
+	}
+
+	/**
+	 * Resolves an OfficeCombat1 duel in O(1). The first fighter attacks on even rounds and
+	 * the second on odd rounds, each dealing a constant amount per hit, so the number of hits
+	 * each side needs decides the winner.
+	 *
+	 * @param energy1 the first fighter's starting energy
+	 * @param damage1 the damage the first fighter deals per hit (skill plus weapon power)
+	 * @param energy2 the second fighter's starting energy
+	 * @param damage2 the damage the second fighter deals per hit
+	 * @return the duel outcome
+	 */
+	public static Outcome resolveDuel(long energy1, long damage1, long energy2, long damage2) {
+		if (energy1 <= 0 || energy2 <= 0) {
+			// The loop never runs; the first fighter is checked for losing first.
+			return new Outcome(energy1 <= 0 ? SECOND : FIRST, 0, energy1, energy2);
+		}
+		long hitsToBeat2 = hitsNeeded(energy2, damage1);
+		long hitsToBeat1 = hitsNeeded(energy1, damage2);
+		if (hitsToBeat2 == Long.MAX_VALUE && hitsToBeat1 == Long.MAX_VALUE) {
+			return new Outcome(NO_WINNER, Long.MAX_VALUE, energy1, energy2);
+		}
+		// The first fighter's k-th hit lands on round 2(k - 1), the second's on round 2k - 1.
+		if (hitsToBeat2 <= hitsToBeat1) {
+			long taken = hitsToBeat2 - 1;
+			return new Outcome(FIRST, 2 * hitsToBeat2 - 1, energy1 - taken * damage2, energy2 - hitsToBeat2 * damage1);
+		}
+		return new Outcome(SECOND, 2 * hitsToBeat1, energy1 - hitsToBeat1 * damage2, energy2 - hitsToBeat1 * damage1);
+	}
+
+	/**
+	 * Counts the hits of a given damage needed to bring energy to zero or below.
+	 *
+	 * @param energy the starting energy, greater than zero
+	 * @param damage the damage per hit
+	 * @return the number of hits, or Long.MAX_VALUE if the damage never reduces energy
+	 */
+	static long hitsNeeded(long energy, long damage) {
+		if (damage <= 0) {
+			return Long.MAX_VALUE;
+		}
+		return (energy + damage - 1) / damage;
+	}
+
+	/**
+	 * Resolves an OfficeCombat2 duel between a security guard with a super gun and a hiding
+	 * student, producing the same winner as stepping the fight round by round.
+	 *
+	 * @param guardEnergy the guard's starting energy
+	 * @param guardSkill the guard's skill level
+	 * @param gunPower the super gun's starting power
+	 * @param studentEnergy the student's starting energy
+	 * @param studentDamage the damage the student deals per hit with the bad gun
+	 * @return the duel outcome, with the guard as the first fighter
+	 */
+	public static Outcome resolveGuardStudent(long guardEnergy, long guardSkill, long gunPower,
+			long studentEnergy, long studentDamage) {
+		GuardStudentFight fight = new GuardStudentFight(guardEnergy, guardSkill, gunPower, studentEnergy, studentDamage);
+		fight.fastForward();
+		return fight.outcome();
+	}
+
+	/**
+	 * Clamps a value to the int range, matching the saturating arithmetic of OfficeCombat2.
+	 *
+	 * @param value the value to clamp
+	 * @return the value limited to [Integer.MIN_VALUE, Integer.MAX_VALUE]
+	 */
+	static long saturate(long value) {
+		return Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+	}
+
+	/**
+	 * Mutable state of an OfficeCombat2 fight that can be stepped one round at a time or
+	 * fast-forwarded over whole boost/hide cycles.
+	 *
+	 * The pattern repeats every six rounds: the guard hits on rounds 6k and 6k + 4, the
+	 * student hides after round 6k so the guard's hit on 6k + 2 is dodged, the student hits
+	 * on every odd round, and the gun doubles after round 6k + 3. Once doubling no longer
+	 * changes the power (zero or saturated) every cycle removes the same energy, so whole
+	 * cycles can be skipped arithmetically.
+	 */
+	public static final class GuardStudentFight {
+		private final long guardSkill;
+		private final long studentDamage;
+		private long guardEnergy;
+		private long studentEnergy;
+		private long power;
+		private boolean hiding;
+		private long round;
+
+		/** Size in bytes of the record written by writeState. */
+		static final int STATE_BYTES = 6 * Long.BYTES + 1;
+
+		/**
+		 * Creates a fight at round zero.
+		 *
+		 * @param guardEnergy the guard's starting energy
+		 * @param guardSkill the guard's skill level
+		 * @param gunPower the super gun's starting power
+		 * @param studentEnergy the student's starting energy
+		 * @param studentDamage the damage the student deals per hit
+		 */
+		public GuardStudentFight(long guardEnergy, long guardSkill, long gunPower,
+				long studentEnergy, long studentDamage) {
+			this.guardEnergy = guardEnergy;
+			this.guardSkill = guardSkill;
+			this.power = saturate(gunPower);
+			this.studentEnergy = studentEnergy;
+			this.studentDamage = saturate(studentDamage);
+		}
+
+		/**
+		 * Checks whether either fighter has run out of energy.
+		 *
+		 * @return true when the fight is over
+		 */
+		public boolean isOver() {
+			return this.guardEnergy <= 0 || this.studentEnergy <= 0;
+		}
+
+		/**
+		 * Plays one round exactly as OfficeCombat2.main does.
+		 */
+		public void step() {
+			if (this.round % 2 == 0) {
+				if (this.hiding) {
+					this.hiding = false;
+				}
+				else {
+					this.studentEnergy -= guardDamage();
+				}
+				if (this.round % 3 == 0) {
+					this.hiding = true;
+				}
+			}
+			else {
+				this.guardEnergy -= this.studentDamage;
+				if (this.round % 3 == 0) {
+					this.power = saturate(this.power * 2);
+				}
+			}
+			this.round++;
+		}
+
+		/**
+		 * Checks whether the fight is at a cycle boundary with stable gun power and neither
+		 * side losing energy, so it can never end.
+		 *
+		 * @return true if no further round can change the result
+		 */
+		public boolean isEndless() {
+			return !isOver() && this.round % 6 == 0 && saturate(this.power * 2) == this.power
+					&& 2 * guardDamage() <= 0 && 3 * this.studentDamage <= 0;
+		}
+
+		/**
+		 * Runs the fight to its end, skipping whole cycles once the gun power is stable.
+		 *
+		 * @return false if the fight can never end
+		 */
+		public boolean fastForward() {
+			while (!isOver()) {
+				if (isEndless()) {
+					return false;
+				}
+				if (this.round % 6 == 0 && saturate(this.power * 2) == this.power) {
+					long studentLoss = 2 * guardDamage();
+					long guardLoss = 3 * this.studentDamage;
+					long cycles = Long.MAX_VALUE;
+					if (studentLoss > 0) {
+						cycles = Math.min(cycles, (this.studentEnergy - 1) / studentLoss);
+					}
+					if (guardLoss > 0) {
+						cycles = Math.min(cycles, (this.guardEnergy - 1) / guardLoss);
+					}
+					if (cycles > 0) {
+						this.studentEnergy = subtractTimes(this.studentEnergy, cycles, studentLoss);
+						this.guardEnergy = subtractTimes(this.guardEnergy, cycles, guardLoss);
+						this.round += 6 * cycles;
+						continue;
+					}
+				}
+				step();
+			}
+			return true;
+		}
+
+		/**
+		 * Summarises the fight so far.
+		 *
+		 * @return the outcome, NO_WINNER if the fight is still running
+		 */
+		public Outcome outcome() {
+			if (!isOver()) {
+				return new Outcome(NO_WINNER, Long.MAX_VALUE, this.guardEnergy, this.studentEnergy);
+			}
+			int winner = this.guardEnergy <= 0 ? SECOND : FIRST;
+			return new Outcome(winner, this.round, this.guardEnergy, this.studentEnergy);
+		}
+
+		/**
+		 * Retrieves the current round counter.
+		 *
+		 * @return the number of rounds played
+		 */
+		public long getRound() {
+			return this.round;
+		}
+
+		/**
+		 * Retrieves the current super gun power.
+		 *
+		 * @return the power
+		 */
+		public long getPower() {
+			return this.power;
+		}
+
+		/**
+		 * Writes the complete fight state in CombatCheckpoint's fixed-size record layout.
+		 *
+		 * @param out the buffer to write to, with at least STATE_BYTES remaining
+		 */
+		void writeState(ByteBuffer out) {
+			out.putLong(this.guardSkill).putLong(this.studentDamage);
+			out.putLong(this.guardEnergy).putLong(this.studentEnergy);
+			out.putLong(this.power).putLong(this.round);
+			out.put((byte) (this.hiding ? 1 : 0));
+		}
+
+		/**
+		 * Recreates a fight from a record written by writeState.
+		 *
+		 * @param in the buffer to read from
+		 * @return the restored fight
+		 */
+		static GuardStudentFight readState(ByteBuffer in) {
+			long guardSkill = in.getLong();
+			long studentDamage = in.getLong();
+			long guardEnergy = in.getLong();
+			long studentEnergy = in.getLong();
+			GuardStudentFight fight = new GuardStudentFight(guardEnergy, guardSkill, 0, studentEnergy, studentDamage);
+			fight.power = in.getLong();
+			fight.round = in.getLong();
+			fight.hiding = in.get() != 0;
+			return fight;
+		}
+
+		private long guardDamage() {
+			return saturate(this.guardSkill + this.power);
+		}
+
+		private static long subtractTimes(long energy, long times, long loss) {
+			try {
+				return Math.subtractExact(energy, Math.multiplyExact(times, loss));
+			} catch (ArithmeticException ex) {
+				return loss < 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+			}
+		}
+	}
+}
@@ -6,6 +6,8 @@ import java.lang.reflect.Modifier;
  * Simple combat simulator that reads fighters and weapons from standard input.
  */
 public class OfficeCombat1 {
+	/** Fights longer than this many rounds are fast-forwarded unless --verbose is given. */
+	static final long LOG_ROUND_LIMIT = 10000;
 	
 	// To test if all fields in a class is not public
 	/**
@@ -25,9 +27,26 @@ public class OfficeCombat1 {
     }
 	
 	/**
-	 * Executes the combat simulation using input from stdin.
+	 * Checks whether a command line flag was given.
 	 *
-	 * @param args unused program arguments
+	 * @param args the program arguments
+	 * @param flag the flag to look for
+	 * @return true if the flag is present
+	 */
+	private static boolean hasFlag(String[] args, String flag) {
+		for (String arg : args) {
+			if (flag.equals(arg)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Executes the combat simulation using input from stdin. Long fights are resolved
+	 * arithmetically and summarised; pass --verbose to log every round regardless, or --quiet to drop per-round output.
+	 *
+	 * @param args optional --verbose or --quiet flag
 	 * @throws IOException when reading input fails
 	 */
 	public static void main(String[] args) throws IOException {
@@ -45,13 +64,28 @@ public class OfficeCombat1 {
 		Weapon w1 = new Weapon(w1_info[0], Integer.valueOf(w1_info[1]));
 		Weapon w2 = new Weapon(w2_info[0], Integer.valueOf(w2_info[1]));
 		
+		boolean verbose = hasFlag(args, "--verbose");
+		boolean quiet = hasFlag(args, "--quiet");
+		CombatLog log = CombatLog.toStandardOutput(quiet ? CombatLog.QUIET : CombatLog.ROUNDS,
+				new String[] {c1.getName(), c2.getName()}, new String[] {w1.getName(), w2.getName()},
+				" takes a hurt of ");
+		
 		// Start fighting
-		System.out.println("Now fighting: " + c1.getName() + " VS " + c2.getName());
-		System.out.println("Skill level of " + c1.getName() + ": " + c1.getSkillLevel());
-		System.out.println("Skill level of " + c2.getName() + ": " + c2.getSkillLevel());
-		System.out.println("Energy level of " + c1.getName() + ": " + c1.getEnergyLevel());
-		System.out.println("Energy level of " + c2.getName() + ": " + c2.getEnergyLevel());
-		System.out.println("----------------------------");
+		log.line("Now fighting: " + c1.getName() + " VS " + c2.getName());
+		log.line("Skill level of " + c1.getName() + ": " + c1.getSkillLevel());
+		log.line("Skill level of " + c2.getName() + ": " + c2.getSkillLevel());
+		log.line("Energy level of " + c1.getName() + ": " + c1.getEnergyLevel());
+		log.line("Energy level of " + c2.getName() + ": " + c2.getEnergyLevel());
+		log.line("----------------------------");
+		
+		CombatResolver.Outcome outcome = CombatResolver.resolveDuel(
+				c1.getEnergyLevel(), c1.attack(w1), c2.getEnergyLevel(), c2.attack(w2));
+		if (quiet || (!verbose && outcome.getRounds() > LOG_ROUND_LIMIT)) {
+			printSummary(log, c1, c2, outcome);
+			printFieldTest(log);
+			log.flush();
+			return;
+		}
 		
 		int round = 0;
 		while (!c1.isLose() && !c2.isLose()) {
@@ -59,31 +93,67 @@ public class OfficeCombat1 {
 				int attackAmount = c1.attack(w1);
 				int hurtAmount = c2.hurt(attackAmount);
 				
-				System.out.println(c1.getName() + " makes an attack by " + w1.getName() + "!");
-				System.out.println(c2.getName() + " takes a hurt of " + hurtAmount + "! Remaining energy becomes " + c2.getEnergyLevel() + ".");
+				log.attack(0);
+				log.hurt(1, hurtAmount, c2.getEnergyLevel());
 			} 
 			else {
 				int attackAmount = c2.attack(w2);
 				int hurtAmount = c1.hurt(attackAmount);
 				
-				System.out.println(c2.getName() + " makes an attack by " + w2.getName() + "!");
-				System.out.println(c1.getName() + " takes a hurt of " + hurtAmount + "! Remaining energy becomes " + c1.getEnergyLevel() + ".");
+				log.attack(1);
+				log.hurt(0, hurtAmount, c1.getEnergyLevel());
 			}
 			round++;
 		}
 		
 		if (c1.isLose()) {
-			System.out.println(c2.getName() + " wins!");
+			log.line(c2.getName() + " wins!");
 		}
 		else {
-			System.out.println(c1.getName() + " wins!");
+			log.line(c1.getName() + " wins!");
 		}
 		
+		printFieldTest(log);
+		log.flush();
+	}
+	
+	/**
+	 * Prints the result of a fast-forwarded fight.
+	 *
+	 * @param log the log to write to
+	 * @param c1 the first fighter
+	 * @param c2 the second fighter
+	 * @param outcome the resolved outcome
+	 * @throws IOException if writing fails
+	 */
+	private static void printSummary(CombatLog log, Character c1, Character c2, CombatResolver.Outcome outcome) throws IOException {
+		if (outcome.getWinner() == CombatResolver.NO_WINNER) {
+			log.line("Neither attack deals any damage. The fight never ends!");
+			return;
+		}
+		log.line("Fast-forwarded " + outcome.getRounds() + " rounds.");
+		log.line("Remaining energy of " + c1.getName() + ": " + outcome.getEnergy1() + ".");
+		log.line("Remaining energy of " + c2.getName() + ": " + outcome.getEnergy2() + ".");
+		if (outcome.getWinner() == CombatResolver.SECOND) {
+			log.line(c2.getName() + " wins!");
+		}
+		else {
+			log.line(c1.getName() + " wins!");
+		}
+	}
+	
+	/**
+	 * Prints whether every class field is private.
+	 *
+	 * @param log the log to write to
+	 * @throws IOException if writing fails
+	 */
+	private static void printFieldTest(CombatLog log) throws IOException {
 		// Test if all class fields are private
-		System.out.println("----------------------------");
-		System.out.println("Test if all the class fields are private");
-		System.out.println("Character: " + areAllFieldsPrivate(Character.class));
-		System.out.println("Weapon: " + areAllFieldsPrivate(Weapon.class));
+		log.line("----------------------------");
+		log.line("Test if all the class fields are private");
+		log.line("Character: " + areAllFieldsPrivate(Character.class));
+		log.line("Weapon: " + areAllFieldsPrivate(Weapon.class));
 	}
 
 	/**
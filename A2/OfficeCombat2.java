@@ -6,6 +6,8 @@ import java.lang.reflect.Modifier;
  * Simulation of a security guard and student duel that also validates field encapsulation.
  */
 public class OfficeCombat2 {
+	/** Fights longer than this many rounds are fast-forwarded unless --verbose is given. */
+	static final long LOG_ROUND_LIMIT = 10000;
 	
 	// To test if all fields in a class is not public
 	/**
@@ -24,10 +26,28 @@ public class OfficeCombat2 {
         return true;
     }
 	
+	/**
+	 * Checks whether a command line flag was given.
+	 *
+	 * @param args the program arguments
+	 * @param flag the flag to look for
+	 * @return true if the flag is present
+	 */
+	private static boolean hasFlag(String[] args, String flag) {
+		for (String arg : args) {
+			if (flag.equals(arg)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * Runs the combat simulation by reading character and weapon data from standard input.
+	 * Long fights are fast-forwarded over whole boost/hide cycles and summarised; pass
+	 * --verbose to log every round regardless, or --quiet to always print the summary.
 	 *
-	 * @param args unused command line arguments
+	 * @param args optional --verbose or --quiet flag
 	 * @throws IOException if reading user input fails
 	 */
 	public static void main(String[] args) throws IOException {
@@ -45,26 +65,41 @@ public class OfficeCombat2 {
 		SuperGun w1 = new SuperGun(w1_info[0], Integer.valueOf(w1_info[1]));
 		BadGun w2 = new BadGun(w2_info[0], Integer.valueOf(w2_info[1]));;
 		
+		boolean verbose = hasFlag(args, "--verbose");
+		boolean quiet = hasFlag(args, "--quiet");
+		CombatLog log = CombatLog.toStandardOutput(quiet ? CombatLog.QUIET : CombatLog.ROUNDS,
+				new String[] {c1.getName(), c2.getName()}, new String[] {w1.getName(), w2.getName()},
+				" takes a hurt amount of ");
+		
 		// Start fighting
-		System.out.println("Now fighting: " + c1.getName() + " VS " + c2.getName());
-		System.out.println("Skill level of " + c1.getName() + ": " + c1.getSkillLevel());
-		System.out.println("Skill level of " + c2.getName() + ": " + c2.getSkillLevel());
-		System.out.println("Energy level of " + c1.getName() + ": " + c1.getEnergyLevel());
-		System.out.println("Energy level of " + c2.getName() + ": " + c2.getEnergyLevel());
-		System.out.println("----------------------------");
+		log.line("Now fighting: " + c1.getName() + " VS " + c2.getName());
+		log.line("Skill level of " + c1.getName() + ": " + c1.getSkillLevel());
+		log.line("Skill level of " + c2.getName() + ": " + c2.getSkillLevel());
+		log.line("Energy level of " + c1.getName() + ": " + c1.getEnergyLevel());
+		log.line("Energy level of " + c2.getName() + ": " + c2.getEnergyLevel());
+		log.line("----------------------------");
+		
+		CombatResolver.Outcome outcome = CombatResolver.resolveGuardStudent(c1.getEnergyLevel(),
+				c1.getSkillLevel(), w1.getPower(), c2.getEnergyLevel(), c2.attack(w2));
+		if (quiet || (!verbose && outcome.getRounds() > LOG_ROUND_LIMIT)) {
+			printSummary(log, c1, c2, outcome);
+			printFieldTest(log);
+			log.flush();
+			return;
+		}
 		
 		int round = 0;
 		while (!c1.isLose() && !c2.isLose()) {
 			if (round % 2 == 0) {
 				int attackAmount = c1.attack(w1);
-				System.out.println(c1.getName() + " makes an attack by " + w1.getName() + "!");
+				log.attack(0);
 				
 				int hurtAmount = c2.hurt(attackAmount);
 				if (hurtAmount == 0) {
-					System.out.println(c2.getName() + " hides from the attack!");
+					log.dodge(1);
 				}
 				else {
-					System.out.println(c2.getName() + " takes a hurt amount of " + hurtAmount + "! Remaining energy becomes " + c2.getEnergyLevel() + ".");
+					log.hurt(1, hurtAmount, c2.getEnergyLevel());
 				}
 				
 				if (round % 3 == 0) {
@@ -75,33 +110,69 @@ public class OfficeCombat2 {
 				int attackAmount = c2.attack(w2);
 				int hurtAmount = c1.hurt(attackAmount);
 				
-				System.out.println(c2.getName() + " makes an attack by " + w2.getName() + "!");
-				System.out.println(c1.getName() + " takes a hurt amount of " + hurtAmount + "! Remaining energy becomes " + c1.getEnergyLevel() + ".");
+				log.attack(1);
+				log.hurt(0, hurtAmount, c1.getEnergyLevel());
 				
 				if (round % 3 == 0) {
 					c1.boostWeapon(w1);
-					System.out.println(c1.getName() + " boost the " + w1.getName() + "!");
+					log.boost(0);
 				}
 			}
 			round++;
 		}
 		
 		if (c1.isLose()) {
-			System.out.println(c2.getName() + " wins! The examination paper is stolen!");
+			log.line(c2.getName() + " wins! The examination paper is stolen!");
 		}
 		else {
-			System.out.println(c1.getName() + " wins! The examination paper is secured!");
+			log.line(c1.getName() + " wins! The examination paper is secured!");
 		}
 		
+		printFieldTest(log);
+		log.flush();
+	}
+	
+	/**
+	 * Prints the result of a fast-forwarded fight.
+	 *
+	 * @param log the log to write to
+	 * @param c1 the security guard
+	 * @param c2 the student
+	 * @param outcome the resolved outcome
+	 * @throws IOException if writing fails
+	 */
+	private static void printSummary(CombatLog log, SecurityGuard c1, Student c2, CombatResolver.Outcome outcome) throws IOException {
+		if (outcome.getWinner() == CombatResolver.NO_WINNER) {
+			log.line("Neither attack deals any damage. The fight never ends!");
+			return;
+		}
+		log.line("Fast-forwarded " + outcome.getRounds() + " rounds.");
+		log.line("Remaining energy of " + c1.getName() + ": " + outcome.getEnergy1() + ".");
+		log.line("Remaining energy of " + c2.getName() + ": " + outcome.getEnergy2() + ".");
+		if (outcome.getWinner() == CombatResolver.SECOND) {
+			log.line(c2.getName() + " wins! The examination paper is stolen!");
+		}
+		else {
+			log.line(c1.getName() + " wins! The examination paper is secured!");
+		}
+	}
+	
+	/**
+	 * Prints whether every class field is private.
+	 *
+	 * @param log the log to write to
+	 * @throws IOException if writing fails
+	 */
+	private static void printFieldTest(CombatLog log) throws IOException {
 		// Test if all class fields are private
-		System.out.println("----------------------------");
-		System.out.println("Test if all the class fields are private");
-		System.out.println("Character: " + areAllFieldsPrivate(Character.class));
-		System.out.println("Student: " + areAllFieldsPrivate(Student.class));
-		System.out.println("SecurityGuard: " + areAllFieldsPrivate(SecurityGuard.class));
-		System.out.println("Weapon: " + areAllFieldsPrivate(Weapon.class));
-		System.out.println("SuperGun: " + areAllFieldsPrivate(SuperGun.class));
-		System.out.println("BadGun: " + areAllFieldsPrivate(BadGun.class));
+		log.line("----------------------------");
+		log.line("Test if all the class fields are private");
+		log.line("Character: " + areAllFieldsPrivate(Character.class));
+		log.line("Student: " + areAllFieldsPrivate(Student.class));
+		log.line("SecurityGuard: " + areAllFieldsPrivate(SecurityGuard.class));
+		log.line("Weapon: " + areAllFieldsPrivate(Weapon.class));
+		log.line("SuperGun: " + areAllFieldsPrivate(SuperGun.class));
+		log.line("BadGun: " + areAllFieldsPrivate(BadGun.class));
 	}
 
 	/**
@@ -159,7 +230,7 @@ public class OfficeCombat2 {
 		 * @return the damage value inflicted
 		 */
 		public int attack(Weapon w) {
-			return this.skillLevel + w.getPower();
+			return (int) CombatResolver.saturate((long) this.skillLevel + w.getPower());
 		}
 		
 		/**
@@ -335,10 +406,11 @@ public class OfficeCombat2 {
 		}
 		
 		/**
-		 * Doubles the weapon power to strengthen subsequent attacks.
+		 * Doubles the weapon power to strengthen subsequent attacks, saturating at the int
+		 * range instead of overflowing.
 		 */
 		public void boost() {
-			setPower(getPower() * 2);
+			setPower((int) CombatResolver.saturate(getPower() * 2L));
 		}
 	}
 
@@ -0,0 +1,214 @@
+/**
+ * Bounded memo of combat outcomes for repeated matchup queries.
+ *
+ * A matchup (rules, and energy, skill and weapon power of both fighters) is packed into three
+ * longs and stored in an open-addressing table with linear probing. When the table holds its
+ * maximum number of entries, a CLOCK hand sweeps the slots: recently used entries get a
+ * second chance, and the first entry not used since the last sweep is evicted. Not
+ * thread-safe; give each worker thread its own cache.
+ */
+public class OutcomeCache {
+	private static final byte EMPTY = 0;
+	private static final byte DUEL = 1;
+	private static final byte GUARD_VS_STUDENT = 2;
+
+	private final int maxEntries;
+	private final int mask;
+	private final byte[] rules;
+	private final long[] keys;
+	private final CombatResolver.Outcome[] values;
+	private final boolean[] referenced;
+	private int size;
+	private int hand;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param maxEntries the most outcomes kept at once
+	 */
+	public OutcomeCache(int maxEntries) {
+		if (maxEntries < 1 || maxEntries > (1 << 29)) {
+			throw new IllegalArgumentException("Cache size out of range: " + maxEntries);
+		}
+		int slots = Integer.highestOneBit(maxEntries) << 2;
+		this.maxEntries = maxEntries;
+		this.mask = slots - 1;
+		this.rules = new byte[slots];
+		this.keys = new long[3 * slots];
+		this.values = new CombatResolver.Outcome[slots];
+		this.referenced = new boolean[slots];
+	}
+
+	/**
+	 * Resolves an OfficeCombat1 duel, reusing a cached outcome when possible.
+	 *
+	 * @param energy1 the first fighter's energy
+	 * @param skill1 the first fighter's skill level
+	 * @param power1 the first fighter's weapon power
+	 * @param energy2 the second fighter's energy
+	 * @param skill2 the second fighter's skill level
+	 * @param power2 the second fighter's weapon power
+	 * @return the outcome
+	 */
+	public CombatResolver.Outcome resolveDuel(int energy1, int skill1, int power1, int energy2, int skill2, int power2) {
+		int slot = find(DUEL, energy1, skill1, power1, energy2, skill2, power2);
+		if (slot >= 0) {
+			return this.values[slot];
+		}
+		// int addition, like OfficeCombat1's calculateDamage, so a cached duel wraps the same way.
+		CombatResolver.Outcome outcome = CombatResolver.resolveDuel(energy1, skill1 + power1,
+				energy2, skill2 + power2);
+		insert(DUEL, energy1, skill1, power1, energy2, skill2, power2, outcome);
+		return outcome;
+	}
+
+	/**
+	 * Resolves an OfficeCombat2 fight, reusing a cached outcome when possible.
+	 *
+	 * @param guardEnergy the security guard's energy
+	 * @param guardSkill the security guard's skill level
+	 * @param gunPower the super gun's power
+	 * @param studentEnergy the student's energy
+	 * @param studentSkill the student's skill level
+	 * @param badPower the bad gun's power
+	 * @return the outcome, with the guard as the first fighter
+	 */
+	public CombatResolver.Outcome resolveGuardStudent(int guardEnergy, int guardSkill, int gunPower,
+			int studentEnergy, int studentSkill, int badPower) {
+		int slot = find(GUARD_VS_STUDENT, guardEnergy, guardSkill, gunPower, studentEnergy, studentSkill, badPower);
+		if (slot >= 0) {
+			return this.values[slot];
+		}
+		long studentDamage = Math.max(0, CombatResolver.saturate((long) studentSkill + badPower) - 1);
+		CombatResolver.Outcome outcome = CombatResolver.resolveGuardStudent(guardEnergy, guardSkill, gunPower,
+				studentEnergy, studentDamage);
+		insert(GUARD_VS_STUDENT, guardEnergy, guardSkill, gunPower, studentEnergy, studentSkill, badPower, outcome);
+		return outcome;
+	}
+
+	/**
+	 * Retrieves the number of cached outcomes.
+	 *
+	 * @return the entry count
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Retrieves how many queries were answered from the cache.
+	 *
+	 * @return the hit count
+	 */
+	public long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Retrieves how many queries had to be resolved.
+	 *
+	 * @return the miss count
+	 */
+	public long getMisses() {
+		return this.misses;
+	}
+
+	private int find(byte rule, int e1, int s1, int p1, int e2, int s2, int p2) {
+		long k0 = pack(e1, e2);
+		long k1 = pack(s1, s2);
+		long k2 = pack(p1, p2);
+		int slot = home(rule, k0, k1, k2);
+		while (this.rules[slot] != EMPTY) {
+			if (this.rules[slot] == rule && this.keys[3 * slot] == k0
+					&& this.keys[3 * slot + 1] == k1 && this.keys[3 * slot + 2] == k2) {
+				this.referenced[slot] = true;
+				this.hits++;
+				return slot;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		this.misses++;
+		return -1;
+	}
+
+	private void insert(byte rule, int e1, int s1, int p1, int e2, int s2, int p2, CombatResolver.Outcome outcome) {
+		if (this.size == this.maxEntries) {
+			evictOne();
+		}
+		long k0 = pack(e1, e2);
+		long k1 = pack(s1, s2);
+		long k2 = pack(p1, p2);
+		int slot = home(rule, k0, k1, k2);
+		while (this.rules[slot] != EMPTY) {
+			slot = (slot + 1) & this.mask;
+		}
+		this.rules[slot] = rule;
+		this.keys[3 * slot] = k0;
+		this.keys[3 * slot + 1] = k1;
+		this.keys[3 * slot + 2] = k2;
+		this.values[slot] = outcome;
+		this.referenced[slot] = false;
+		this.size++;
+	}
+
+	/**
+	 * Advances the CLOCK hand until it finds an entry without a second chance and removes it.
+	 */
+	private void evictOne() {
+		while (true) {
+			int slot = this.hand;
+			this.hand = (this.hand + 1) & this.mask;
+			if (this.rules[slot] == EMPTY) {
+				continue;
+			}
+			if (this.referenced[slot]) {
+				this.referenced[slot] = false;
+				continue;
+			}
+			remove(slot);
+			return;
+		}
+	}
+
+	/**
+	 * Removes the entry in a slot and shifts later entries of its probe run back so lookups
+	 * never stop early at the hole.
+	 *
+	 * @param slot the slot to clear
+	 */
+	private void remove(int slot) {
+		int hole = slot;
+		int next = (hole + 1) & this.mask;
+		while (this.rules[next] != EMPTY) {
+			int want = home(this.rules[next], this.keys[3 * next], this.keys[3 * next + 1], this.keys[3 * next + 2]);
+			// Move the entry if the hole lies between its home slot and its current slot.
+			if (((next - want) & this.mask) >= ((next - hole) & this.mask)) {
+				this.rules[hole] = this.rules[next];
+				this.keys[3 * hole] = this.keys[3 * next];
+				this.keys[3 * hole + 1] = this.keys[3 * next + 1];
+				this.keys[3 * hole + 2] = this.keys[3 * next + 2];
+				this.values[hole] = this.values[next];
+				this.referenced[hole] = this.referenced[next];
+				hole = next;
+			}
+			next = (next + 1) & this.mask;
+		}
+		this.rules[hole] = EMPTY;
+		this.values[hole] = null;
+		this.referenced[hole] = false;
+		this.size--;
+	}
+
+	private int home(byte rule, long k0, long k1, long k2) {
+		long h = k0 * 0x9E3779B97F4A7C15L;
+		h = (h ^ (h >>> 29) ^ k1) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 31) ^ k2 ^ rule) * 0x94D049BB133111EBL;
+		return (int) (h ^ (h >>> 32)) & this.mask;
+	}
+
+	private static long pack(int high, int low) {
+		return ((long) high << 32) | (low & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,399 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * N-vs-N OfficeCombat2 battle between a team of security guards and a team of students.
+ *
+ * Every combatant acts at its own speed: after acting it is next due speed time units later.
+ * Due times are kept in an indexed binary min-heap (ties go to the lower id), so each action
+ * costs O(log n) however many combatants take part. Targets are picked in O(1) from a dense
+ * list of the opposing team's survivors, and a combatant that runs out of energy is removed
+ * from both the heap and its team list.
+ *
+ * The OfficeCombat2 rules carry over per combatant: guards fire super guns and students fire
+ * bad guns for one less damage. After a guard's k-th attack with k % 3 == 0 its target hides
+ * from the next hit, and after a student's k-th attack with k % 3 == 1 the guard it hit
+ * boosts its gun. With one guard listed before one student at equal speed this replays
+ * OfficeCombat2 exactly.
+ */
+public class TeamBattle {
+	/** Team number of the security guards. */
+	public static final int GUARDS = 0;
+	/** Team number of the students. */
+	public static final int STUDENTS = 1;
+
+	private final String[] names;
+	private final int[] team;
+	private final long[] energy;
+	private final long[] skill;
+	private final long[] power;
+	private final long[] speed;
+	private final boolean[] hiding;
+	private final long[] actions;
+	private final int n;
+
+	private final long[] due;
+	private final int[] heap;
+	private final int[] heapPos;
+	private int heapSize;
+
+	private final int[][] alive = new int[2][];
+	private final int[] aliveCount = new int[2];
+	private final int[] alivePos;
+
+	private long actionsTaken;
+	private long clock;
+
+	/**
+	 * Creates a battle from combatant descriptions.
+	 *
+	 * @param combatants the combatants; their list order is their id
+	 */
+	public TeamBattle(List<Combatant> combatants) {
+		this.n = combatants.size();
+		this.names = new String[this.n];
+		this.team = new int[this.n];
+		this.energy = new long[this.n];
+		this.skill = new long[this.n];
+		this.power = new long[this.n];
+		this.speed = new long[this.n];
+		this.hiding = new boolean[this.n];
+		this.actions = new long[this.n];
+		this.due = new long[this.n];
+		this.heap = new int[this.n];
+		this.heapPos = new int[this.n];
+		this.alivePos = new int[this.n];
+		this.alive[GUARDS] = new int[this.n];
+		this.alive[STUDENTS] = new int[this.n];
+
+		for (int id = 0; id < this.n; id++) {
+			Combatant c = combatants.get(id);
+			if (c.getSpeed() <= 0) {
+				throw new IllegalArgumentException("Speed must be positive for " + c.getName());
+			}
+			this.names[id] = c.getName();
+			this.team[id] = c.getTeam();
+			this.energy[id] = c.getEnergy();
+			this.skill[id] = c.getSkill();
+			this.power[id] = CombatResolver.saturate(c.getPower());
+			this.speed[id] = c.getSpeed();
+			if (this.energy[id] > 0) {
+				int t = this.team[id];
+				this.alivePos[id] = this.aliveCount[t];
+				this.alive[t][this.aliveCount[t]++] = id;
+				this.due[id] = 0;
+				push(id);
+			}
+		}
+	}
+
+	/**
+	 * Runs the battle until a team is wiped out or the action cap is reached.
+	 *
+	 * @param maxActions the most actions to play
+	 * @return GUARDS or STUDENTS for the winning team, or -1 if both teams still stand
+	 */
+	public int run(long maxActions) {
+		while (this.aliveCount[GUARDS] > 0 && this.aliveCount[STUDENTS] > 0 && this.actionsTaken < maxActions) {
+			act(pop());
+		}
+		if (this.aliveCount[STUDENTS] == 0 && this.aliveCount[GUARDS] > 0) {
+			return GUARDS;
+		}
+		if (this.aliveCount[GUARDS] == 0) {
+			return STUDENTS;
+		}
+		return -1;
+	}
+
+	/**
+	 * Plays one combatant's action and schedules its next one.
+	 *
+	 * @param id the acting combatant
+	 */
+	private void act(int id) {
+		this.clock = this.due[id];
+		// Per-combatant action counts are long so long fights cannot overflow them.
+		long k = this.actions[id]++;
+		int other = 1 - this.team[id];
+		int target = this.alive[other][(int) (k % this.aliveCount[other])];
+
+		long damage = CombatResolver.saturate(this.skill[id] + this.power[id]);
+		if (this.team[id] == STUDENTS) {
+			damage = Math.max(0, damage - 1);
+		}
+		if (this.hiding[target]) {
+			this.hiding[target] = false;
+		}
+		else {
+			this.energy[target] -= damage;
+		}
+
+		if (this.team[id] == GUARDS && k % 3 == 0) {
+			this.hiding[target] = true;
+		}
+		if (this.team[id] == STUDENTS && k % 3 == 1) {
+			this.power[target] = CombatResolver.saturate(this.power[target] * 2);
+		}
+		if (this.energy[target] <= 0) {
+			kill(target);
+		}
+
+		this.actionsTaken++;
+		this.due[id] += this.speed[id];
+		push(id);
+	}
+
+	private void kill(int id) {
+		int t = this.team[id];
+		int last = this.alive[t][--this.aliveCount[t]];
+		this.alive[t][this.alivePos[id]] = last;
+		this.alivePos[last] = this.alivePos[id];
+		removeFromHeap(id);
+	}
+
+	/**
+	 * Retrieves how many actions have been played.
+	 *
+	 * @return the action count
+	 */
+	public long getActionsTaken() {
+		return this.actionsTaken;
+	}
+
+	/**
+	 * Retrieves the time of the latest action.
+	 *
+	 * @return the battle clock
+	 */
+	public long getClock() {
+		return this.clock;
+	}
+
+	/**
+	 * Retrieves how many members of a team are still standing.
+	 *
+	 * @param t GUARDS or STUDENTS
+	 * @return the survivor count
+	 */
+	public int getSurvivors(int t) {
+		return this.aliveCount[t];
+	}
+
+	/**
+	 * Retrieves a combatant's remaining energy.
+	 *
+	 * @param id the combatant id
+	 * @return the energy level
+	 */
+	public long getEnergy(int id) {
+		return this.energy[id];
+	}
+
+	private boolean before(int a, int b) {
+		return this.due[a] < this.due[b] || (this.due[a] == this.due[b] && a < b);
+	}
+
+	private void push(int id) {
+		int i = this.heapSize++;
+		this.heap[i] = id;
+		this.heapPos[id] = i;
+		siftUp(i);
+	}
+
+	private int pop() {
+		int top = this.heap[0];
+		removeFromHeap(top);
+		return top;
+	}
+
+	private void removeFromHeap(int id) {
+		int i = this.heapPos[id];
+		int last = this.heap[--this.heapSize];
+		if (i == this.heapSize) {
+			return;
+		}
+		this.heap[i] = last;
+		this.heapPos[last] = i;
+		siftDown(i);
+		siftUp(this.heapPos[last]);
+	}
+
+	private void siftUp(int i) {
+		int id = this.heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			int p = this.heap[parent];
+			if (!before(id, p)) {
+				break;
+			}
+			this.heap[i] = p;
+			this.heapPos[p] = i;
+			i = parent;
+		}
+		this.heap[i] = id;
+		this.heapPos[id] = i;
+	}
+
+	private void siftDown(int i) {
+		int id = this.heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= this.heapSize) {
+				break;
+			}
+			if (child + 1 < this.heapSize && before(this.heap[child + 1], this.heap[child])) {
+				child++;
+			}
+			int c = this.heap[child];
+			if (!before(c, id)) {
+				break;
+			}
+			this.heap[i] = c;
+			this.heapPos[c] = i;
+			i = child;
+		}
+		this.heap[i] = id;
+		this.heapPos[id] = i;
+	}
+
+	/**
+	 * Reads combatants, one per line: guard|student name energy skill weaponPower speed.
+	 *
+	 * @param path the roster file
+	 * @return the combatants in file order
+	 * @throws IOException if the file cannot be read
+	 */
+	public static List<Combatant> loadCombatants(String path) throws IOException {
+		List<Combatant> combatants = new ArrayList<>();
+		try (BufferedReader in = new BufferedReader(new FileReader(path))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] parts = line.trim().split("\\s+");
+				if (parts.length < 6) {
+					continue;
+				}
+				int t = parts[0].equalsIgnoreCase("guard") ? GUARDS : STUDENTS;
+				combatants.add(new Combatant(t, parts[1], Integer.parseInt(parts[2]), Integer.parseInt(parts[3]),
+						Integer.parseInt(parts[4]), Long.parseLong(parts[5])));
+			}
+		}
+		return combatants;
+	}
+
+	/**
+	 * Runs a team battle from a roster file.
+	 *
+	 * @param args roster file and optional action cap
+	 * @throws IOException if the roster cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: java TeamBattle <roster> [maxActions]");
+			return;
+		}
+		long maxActions = args.length >= 2 ? Long.parseLong(args[1]) : 100000000L;
+		TeamBattle battle = new TeamBattle(loadCombatants(args[0]));
+		long start = System.nanoTime();
+		int winner = battle.run(maxActions);
+		long elapsed = System.nanoTime() - start;
+
+		if (winner == GUARDS) {
+			System.out.println("The guards win! The examination paper is secured!");
+		}
+		else if (winner == STUDENTS) {
+			System.out.println("The students win! The examination paper is stolen!");
+		}
+		else {
+			System.out.println("No team wins within " + maxActions + " actions.");
+		}
+		System.out.println("Actions: " + battle.getActionsTaken() + ", time: " + battle.getClock()
+				+ ", guards left: " + battle.getSurvivors(GUARDS) + ", students left: " + battle.getSurvivors(STUDENTS)
+				+ ", " + (elapsed / 1000000) + " ms.");
+	}
+
+	/**
+	 * Description of one team battle participant.
+	 */
+	public static final class Combatant {
+		private final int team;
+		private final String name;
+		private final int energy;
+		private final int skill;
+		private final int power;
+		private final long speed;
+
+		/**
+		 * Creates a combatant.
+		 *
+		 * @param team GUARDS or STUDENTS
+		 * @param name the combatant name
+		 * @param energy the starting energy
+		 * @param skill the skill level
+		 * @param power the weapon power
+		 * @param speed the time between actions
+		 */
+		public Combatant(int team, String name, int energy, int skill, int power, long speed) {
+			this.team = team;
+			this.name = name;
+			this.energy = energy;
+			this.skill = skill;
+			this.power = power;
+			this.speed = speed;
+		}
+
+		/**
+		 * Retrieves the team number.
+		 *
+		 * @return GUARDS or STUDENTS
+		 */
+		public int getTeam() {
+			return this.team;
+		}
+
+		/**
+		 * Retrieves the combatant name.
+		 *
+		 * @return the name
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Retrieves the starting energy.
+		 *
+		 * @return the energy level
+		 */
+		public int getEnergy() {
+			return this.energy;
+		}
+
+		/**
+		 * Retrieves the skill level.
+		 *
+		 * @return the skill level
+		 */
+		public int getSkill() {
+			return this.skill;
+		}
+
+		/**
+		 * Retrieves the weapon power.
+		 *
+		 * @return the power value
+		 */
+		public int getPower() {
+			return this.power;
+		}
+
+		/**
+		 * Retrieves the time between actions.
+		 *
+		 * @return the speed
+		 */
+		public long getSpeed() {
+			return this.speed;
+		}
+	}
+}
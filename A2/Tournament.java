@@ -0,0 +1,354 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Round-robin tournament over a roster of fighters, resolved in parallel.
+ *
+ * Every ordered pair of distinct entrants fights once, the first entrant opening the duel.
+ * Rows of the win matrix are scheduled on a fork-join pool; each row task writes only its
+ * own row, and column results are gathered in a second pass, so no locks are shared.
+ */
+public class Tournament {
+	/** OfficeCombat1 rules: both entrants are plain characters. */
+	public static final int DUEL = 1;
+	/** OfficeCombat2 rules: the opener is a security guard with a super gun, the other a student with a bad gun. */
+	public static final int GUARD_VS_STUDENT = 2;
+	/** Marks a tournament checkpoint file ("OCT1"). */
+	static final int CHECKPOINT_MAGIC = 0x4f435431;
+	/** Size of the checkpoint header: magic, mode, roster size and completed rows. */
+	private static final int CHECKPOINT_HEADER = 4 * Integer.BYTES;
+
+	private final Entrant[] roster;
+	private final int mode;
+	private final byte[] results;
+
+	/**
+	 * Creates a tournament over the given roster.
+	 *
+	 * @param roster the entrants
+	 * @param mode DUEL or GUARD_VS_STUDENT
+	 */
+	public Tournament(List<Entrant> roster, int mode) {
+		if (mode != DUEL && mode != GUARD_VS_STUDENT) {
+			throw new IllegalArgumentException("Unknown tournament mode " + mode);
+		}
+		this.roster = roster.toArray(new Entrant[0]);
+		this.mode = mode;
+		this.results = new byte[this.roster.length * this.roster.length];
+	}
+
+	/**
+	 * Plays every match on the given pool.
+	 *
+	 * @param pool the pool that runs the row tasks
+	 */
+	public void play(ForkJoinPool pool) {
+		int n = this.roster.length;
+		try {
+			pool.submit(() -> IntStream.range(0, n).parallel().forEach(this::playRow)).get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Tournament interrupted", ex);
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException("Tournament failed", ex.getCause());
+		}
+	}
+
+	/**
+	 * Plays every match in blocks of rows, saving the results after each block so an
+	 * interrupted run can resume. Rows already recorded in the checkpoint are skipped; the
+	 * checkpoint is deleted once the tournament is complete.
+	 *
+	 * @param pool the pool that runs the row tasks
+	 * @param checkpoint the checkpoint file
+	 * @param rowsPerCheckpoint the number of rows played between checkpoints
+	 * @return the number of rows restored from the checkpoint
+	 * @throws IOException if the checkpoint cannot be read or written
+	 */
+	public int play(ForkJoinPool pool, Path checkpoint, int rowsPerCheckpoint) throws IOException {
+		int n = this.roster.length;
+		int restored = restore(checkpoint);
+		if (restored == 0) {
+			save(checkpoint, 0, 0);
+		}
+		for (int from = restored; from < n; from += rowsPerCheckpoint) {
+			int start = from;
+			int end = Math.min(n, from + rowsPerCheckpoint);
+			try {
+				pool.submit(() -> IntStream.range(start, end).parallel().forEach(this::playRow)).get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Tournament interrupted", ex);
+			} catch (ExecutionException ex) {
+				throw new IllegalStateException("Tournament failed", ex.getCause());
+			}
+			if (end < n) {
+				save(checkpoint, start, end);
+			}
+		}
+		Files.deleteIfExists(checkpoint);
+		return restored;
+	}
+
+	/**
+	 * Extends the checkpoint with a block of newly completed rows. The rows are written and
+	 * forced to disk before the header's row count is raised, so a crash mid-save leaves the
+	 * previous checkpoint valid and each save costs only the new rows.
+	 *
+	 * @param checkpoint the checkpoint file
+	 * @param from the first row not yet saved
+	 * @param rows the number of completed rows
+	 * @throws IOException if the checkpoint cannot be written
+	 */
+	private void save(Path checkpoint, int from, int rows) throws IOException {
+		int n = this.roster.length;
+		try (FileChannel ch = FileChannel.open(checkpoint, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			ch.write(ByteBuffer.wrap(this.results, from * n, (rows - from) * n), CHECKPOINT_HEADER + (long) from * n);
+			ch.force(false);
+			ByteBuffer header = ByteBuffer.allocate(CHECKPOINT_HEADER);
+			header.putInt(CHECKPOINT_MAGIC).putInt(this.mode).putInt(n).putInt(rows).flip();
+			ch.write(header, 0);
+			ch.force(false);
+		}
+	}
+
+	/**
+	 * Loads the completed rows from a checkpoint, if there is one for this tournament.
+	 *
+	 * @param checkpoint the checkpoint file
+	 * @return the number of completed rows restored, zero for a missing or headerless file
+	 * @throws IOException if the file exists but belongs to a different tournament
+	 */
+	private int restore(Path checkpoint) throws IOException {
+		if (!Files.exists(checkpoint)) {
+			return 0;
+		}
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+		int n = this.roster.length;
+		// A crash while the empty checkpoint was being created leaves no header yet.
+		if (in.remaining() < CHECKPOINT_HEADER || in.getInt(0) == 0) {
+			return 0;
+		}
+		if (in.getInt() != CHECKPOINT_MAGIC
+				|| in.getInt() != this.mode || in.getInt() != n) {
+			throw new IOException(checkpoint + " is not a checkpoint of this tournament");
+		}
+		int rows = in.getInt();
+		if (rows < 0 || rows > n || in.remaining() < rows * n) {
+			throw new IOException(checkpoint + " is truncated");
+		}
+		in.get(this.results, 0, rows * n);
+		return rows;
+	}
+
+	/**
+	 * Plays every match opened by one entrant and records the results in its row.
+	 *
+	 * @param i the opening entrant's index
+	 */
+	void playRow(int i) {
+		int n = this.roster.length;
+		Entrant a = this.roster[i];
+		for (int j = 0; j < n; j++) {
+			if (i != j) {
+				this.results[i * n + j] = (byte) resolve(a, this.roster[j]);
+			}
+		}
+	}
+
+	/**
+	 * Resolves one match with the tournament's rules.
+	 *
+	 * @param a the opening entrant
+	 * @param b the other entrant
+	 * @return CombatResolver.FIRST, SECOND or NO_WINNER
+	 */
+	int resolve(Entrant a, Entrant b) {
+		if (this.mode == DUEL) {
+			return CombatResolver.resolveDuel(a.getEnergy(), a.getSkill() + a.getPower(),
+					b.getEnergy(), b.getSkill() + b.getPower()).getWinner();
+		}
+		long studentDamage = Math.max(0, CombatResolver.saturate((long) b.getSkill() + b.getPower()) - 1);
+		return CombatResolver.resolveGuardStudent(a.getEnergy(), a.getSkill(), a.getPower(),
+				b.getEnergy(), studentDamage).getWinner();
+	}
+
+	/**
+	 * Retrieves the result of the match opened by entrant i against entrant j.
+	 *
+	 * @param i the opener
+	 * @param j the other entrant
+	 * @return CombatResolver.FIRST, SECOND or NO_WINNER
+	 */
+	public int result(int i, int j) {
+		return this.results[i * this.roster.length + j];
+	}
+
+	/**
+	 * Counts each entrant's wins, both as opener (its row) and as responder (its column).
+	 *
+	 * @return the number of wins per entrant
+	 */
+	public int[] wins() {
+		int n = this.roster.length;
+		int[] wins = new int[n];
+		IntStream.range(0, n).parallel().forEach(k -> {
+			int count = 0;
+			for (int other = 0; other < n; other++) {
+				if (this.results[k * n + other] == CombatResolver.FIRST) {
+					count++;
+				}
+				if (this.results[other * n + k] == CombatResolver.SECOND) {
+					count++;
+				}
+			}
+			wins[k] = count;
+		});
+		return wins;
+	}
+
+	/**
+	 * Reads a roster with one entrant per line: name energy skill weaponName weaponPower.
+	 *
+	 * @param path the roster file
+	 * @return the entrants
+	 * @throws IOException if the file cannot be read
+	 */
+	public static List<Entrant> loadRoster(String path) throws IOException {
+		List<Entrant> roster = new ArrayList<>();
+		try (BufferedReader in = new BufferedReader(new FileReader(path))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] parts = line.trim().split("\\s+");
+				if (parts.length < 5) {
+					continue;
+				}
+				roster.add(new Entrant(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+						parts[3], Integer.parseInt(parts[4])));
+			}
+		}
+		return roster;
+	}
+
+	/**
+	 * Runs a tournament and prints the standings.
+	 *
+	 * @param args roster file, optional mode (1 or 2, default 2), optional number of standings to print
+	 *             and optional checkpoint file to save progress to and resume from
+	 * @throws IOException if the roster cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: java Tournament <roster> [mode] [top] [checkpoint]");
+			return;
+		}
+		int mode = args.length >= 2 ? Integer.parseInt(args[1]) : GUARD_VS_STUDENT;
+		List<Entrant> roster = loadRoster(args[0]);
+		int top = args.length >= 3 ? Integer.parseInt(args[2]) : roster.size();
+
+		Tournament t = new Tournament(roster, mode);
+		long start = System.nanoTime();
+		if (args.length >= 4) {
+			int restored = t.play(ForkJoinPool.commonPool(), Paths.get(args[3]), 64);
+			if (restored > 0) {
+				System.out.println("Resumed after " + restored + " of " + roster.size() + " rows.");
+			}
+		}
+		else {
+			t.play(ForkJoinPool.commonPool());
+		}
+		int[] wins = t.wins();
+		long elapsed = System.nanoTime() - start;
+
+		Integer[] order = new Integer[roster.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (x, y) -> wins[y] != wins[x] ? Integer.compare(wins[y], wins[x]) : Integer.compare(x, y));
+		long games = 2L * (roster.size() - 1);
+		for (int rank = 0; rank < Math.min(top, order.length); rank++) {
+			int k = order[rank];
+			System.out.println((rank + 1) + ". " + roster.get(k).getName() + " wins " + wins[k] + " of " + games + ".");
+		}
+		System.out.println("Played " + (long) roster.size() * (roster.size() - 1) + " matches in "
+				+ (elapsed / 1000000) + " ms.");
+	}
+
+	/**
+	 * Tournament entrant: a fighter with its weapon.
+	 */
+	public static final class Entrant {
+		private final String name;
+		private final int energy;
+		private final int skill;
+		private final String weaponName;
+		private final int power;
+
+		/**
+		 * Creates an entrant.
+		 *
+		 * @param name the fighter name
+		 * @param energy the starting energy
+		 * @param skill the skill level
+		 * @param weaponName the weapon name
+		 * @param power the weapon power
+		 */
+		public Entrant(String name, int energy, int skill, String weaponName, int power) {
+			this.name = name;
+			this.energy = energy;
+			this.skill = skill;
+			this.weaponName = weaponName;
+			this.power = power;
+		}
+
+		/**
+		 * Retrieves the fighter name.
+		 *
+		 * @return the name
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Retrieves the starting energy.
+		 *
+		 * @return the energy level
+		 */
+		public int getEnergy() {
+			return this.energy;
+		}
+
+		/**
+		 * Retrieves the skill level.
+		 *
+		 * @return the skill level
+		 */
+		public int getSkill() {
+			return this.skill;
+		}
+
+		/**
+		 * Retrieves the weapon name.
+		 *
+		 * @return the weapon name
+		 */
+		public String getWeaponName() {
+			return this.weaponName;
+		}
+
+		/**
+		 * Retrieves the weapon power.
+		 *
+		 * @return the power value
+		 */
+		public int getPower() {
+			return this.power;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 public class CmdAddProduct implements Command {
-    public String execute(VendingMachine v, String[] cmdParts) {
+    public String execute(VendingMachine v, CoinWallet wallet, String[] cmdParts) {
         if (cmdParts.length < 3) {
             return "Invalid command.";
         }
@@ -2,7 +2,7 @@ import java.util.Arrays;
 
 public class CmdCheckProductInfo implements Command {
     @Override
-    public String execute(VendingMachine v, String[] cmdParts) {
+    public String execute(VendingMachine v, CoinWallet wallet, String[] cmdParts) {
         if (cmdParts.length < 2) {
             return "Invalid command.";
         }
@@ -1,6 +1,6 @@
 public class CmdInsertCoin implements Command {
     @Override
-    public String execute(VendingMachine v, String[] cmdParts) {
+    public String execute(VendingMachine v, CoinWallet wallet, String[] cmdParts) {
         if (cmdParts.length < 2) {
             return "Invalid command.";
         }
@@ -16,9 +16,9 @@ public class CmdInsertCoin implements Command {
             return "Invalid coin value.";
         }
 
-        v.insertCoin(cmdParts[1], coinValue);
+        wallet.insertCoin(cmdParts[1], coinValue);
 
-        int total = v.getTotalInsertedCoins();
+        int total = wallet.getTotal();
         return "Inserted a $" + coinValue + " coin. $" + total + " in total.";
     }
 }
\ No newline at end of file
@@ -1,6 +1,6 @@
 public class CmdPurchase implements Command {
     @Override
-    public String execute(VendingMachine v, String[] cmdParts) {
+    public String execute(VendingMachine v, CoinWallet wallet, String[] cmdParts) {
         if (cmdParts.length < 2) {
             return "Invalid command.";
         }
@@ -15,19 +15,17 @@ public class CmdPurchase implements Command {
             return productName + " does not exist.";
         }
 
-        int totalInserted = v.getTotalInsertedCoins();
         int price = product.getPrice();
-
-        if (product.getQuantity() <= 0) {
+        int totalInserted = v.purchase(productName, wallet);
+        if (totalInserted == VendingMachine.OUT_OF_STOCK) {
             return productName + " is out of stock!";
         }
-
-        if (totalInserted < price) {
-            return "Not enough credit to buy " + productName + "! Inserted $" + totalInserted + " but needs $" + price + ".";
+        if (totalInserted == VendingMachine.NOT_ENOUGH_CREDIT) {
+            // Nothing was taken, so the wallet still holds what was inserted.
+            return "Not enough credit to buy " + productName + "! Inserted $" + wallet.getTotal() + " but needs $" + price + ".";
         }
 
         int changeAmount = totalInserted - price;
-        v.purchase(productName);
 
         if (changeAmount == 0) {
             return "Dropped " + productName + ". Paid $" + totalInserted + ". No change.";
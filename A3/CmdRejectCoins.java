@@ -6,20 +6,20 @@ import java.util.StringJoiner;
 
 public class CmdRejectCoins implements Command {
     @Override
-    public String execute(VendingMachine v, String[] cmdParts) {
-        Map<Integer, Integer> coinsSnapshot = v.getInsertedCoins();
-        int total = v.getTotalInsertedCoins();
-        if (total == 0 || coinsSnapshot == null || coinsSnapshot.isEmpty()) {
-            v.rejectCoins();
+    public String execute(VendingMachine v, CoinWallet wallet, String[] cmdParts) {
+        Map<Integer, Integer> coinsSnapshot = wallet.takeAll();
+        if (coinsSnapshot.isEmpty()) {
             return "Rejected no coin!";
         }
 
+        int total = 0;
         List<Integer> coins = new ArrayList<>();
         for (Map.Entry<Integer, Integer> entry : coinsSnapshot.entrySet()) {
             int denomination = entry.getKey();
             int count = entry.getValue();
             for (int i = 0; i < count; i++) {
                 coins.add(denomination);
+                total += denomination;
             }
         }
 
@@ -30,8 +30,6 @@ public class CmdRejectCoins implements Command {
             joiner.add("$" + coin);
         }
 
-        v.rejectCoins();
-
         return "Rejected " + joiner.toString() + ". $" + total + " in total.";
     }
 }
\ No newline at end of file
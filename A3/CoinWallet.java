@@ -0,0 +1,63 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Coins inserted by one customer session; sessions share the machine's inventory but not their coins
+public class CoinWallet {
+    private final int[] denominations;
+    private final int[] counts;
+
+    public CoinWallet(int[] denominations) {
+        this.denominations = denominations.clone();
+        this.counts = new int[denominations.length];
+    }
+
+    public synchronized boolean insertCoin(String coin, Integer value) {
+        int denomination = value != null ? value : parseDenomination(coin);
+        for (int i = 0; i < denominations.length; i++) {
+            if (denominations[i] == denomination) {
+                counts[i]++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized Map<Integer, Integer> getInsertedCoins() {
+        LinkedHashMap<Integer, Integer> snapshot = new LinkedHashMap<>();
+        for (int i = 0; i < denominations.length; i++) {
+            if (counts[i] > 0) {
+                snapshot.put(denominations[i], counts[i]);
+            }
+        }
+        return snapshot;
+    }
+
+    public synchronized int getTotal() {
+        int total = 0;
+        for (int i = 0; i < denominations.length; i++) {
+            total += denominations[i] * counts[i];
+        }
+        return total;
+    }
+
+    // Returns the coins held and empties the wallet in one step
+    public synchronized Map<Integer, Integer> takeAll() {
+        Map<Integer, Integer> coins = getInsertedCoins();
+        reset();
+        return coins;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+    }
+
+    private int parseDenomination(String coinLabel) {
+        try {
+            return Integer.parseInt(coinLabel);
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
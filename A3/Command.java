@@ -1,3 +1,3 @@
 public interface Command {
-	public String execute(VendingMachine v, String[] cmdParts);
+	public String execute(VendingMachine v, CoinWallet wallet, String[] cmdParts);
 }
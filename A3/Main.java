@@ -15,6 +15,7 @@ public class Main {
 		price.*/
 		
 		v.initializeProducts();
+		CoinWallet wallet = v.openSession();
 
 		System.out.println("Welcome to COMP2396 Assignment 3 - Vending Machine");
 
@@ -45,7 +46,7 @@ public class Main {
 			}
 
 			if (cmdObj != null) {
-				System.out.println(cmdObj.execute(v, cmdParts));
+				System.out.println(cmdObj.execute(v, wallet, cmdParts));
 			}
 
 			inputLine = "";
@@ -1,12 +1,14 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class Product {
-    private String name;
-    private int price;
-    private int quantity;
+    private final String name;
+    private final int price;
+    private final AtomicInteger quantity;
 
     public Product(String name, int price, int quantity) {
         this.name = name;
         this.price = price;
-        this.quantity = quantity;
+        this.quantity = new AtomicInteger(quantity);
     }
 
     public String getName() {
@@ -18,22 +20,36 @@ public class Product {
     }
 
     public int getQuantity() {
-        return quantity;
+        return quantity.get();
     }
 
     public String getProductInfo() {
-        return name + ": Price = " + price + ", Quantity = " + quantity + ".";
+        return name + ": Price = " + price + ", Quantity = " + quantity.get() + ".";
     }
 
-    public void decrementQuantity() {
-        if (quantity > 0) {
-            quantity--;
+    // Takes one unit only if one is left, so concurrent buyers can never oversell
+    public boolean tryDecrementQuantity() {
+        while (true) {
+            int current = quantity.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (quantity.compareAndSet(current, current - 1)) {
+                return true;
+            }
         }
     }
 
     public void increaseQuantity(int amount) {
-        if (amount > 0) {
-            quantity += amount;
+        if (amount <= 0) {
+            return;
+        }
+        while (true) {
+            int current = quantity.get();
+            int updated = current > Integer.MAX_VALUE - amount ? Integer.MAX_VALUE : current + amount;
+            if (quantity.compareAndSet(current, updated)) {
+                return;
+            }
         }
     }
 }
\ No newline at end of file
@@ -1,22 +1,21 @@
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class VendingMachine {
+    public static final int OUT_OF_STOCK = -1;
+    public static final int NOT_ENOUGH_CREDIT = -2;
+
     private static final int[] ACCEPTED_DENOMINATIONS = {10, 5, 2, 1};
 
-    private final LinkedHashMap<Integer, Integer> insertedCoins;
-    private final HashMap<String, Product> products;
+    private final ConcurrentHashMap<String, Product> products;
 
     public VendingMachine() {
-        insertedCoins = new LinkedHashMap<>();
-        for (int denom : ACCEPTED_DENOMINATIONS) {
-            insertedCoins.put(denom, 0);
-        }
+        products = new ConcurrentHashMap<>();
+    }
 
-        products = new HashMap<>();
+    public CoinWallet openSession() {
+        return new CoinWallet(ACCEPTED_DENOMINATIONS);
     }
 
     public void addProduct(String name, int quantity) {
@@ -24,40 +23,7 @@ public class VendingMachine {
             return;
         }
 
-        Product product = products.get(name);
-        if (product == null) {
-            product = new Product(name, 0, 0);
-            products.put(name, product);
-        }
-
-        product.increaseQuantity(quantity);
-    }
-
-    public void insertCoin(String coin, Integer value) {
-        int denomination = value != null ? value : parseDenomination(coin);
-        if (!insertedCoins.containsKey(denomination)) {
-            return;
-        }
-
-        insertedCoins.put(denomination, insertedCoins.get(denomination) + 1);
-    }
-
-    public Map<Integer, Integer> getInsertedCoins() {
-        LinkedHashMap<Integer, Integer> snapshot = new LinkedHashMap<>();
-        for (Map.Entry<Integer, Integer> entry : insertedCoins.entrySet()) {
-            if (entry.getValue() > 0) {
-                snapshot.put(entry.getKey(), entry.getValue());
-            }
-        }
-        return snapshot;
-    }
-
-    public int getTotalInsertedCoins() {
-        int total = 0;
-        for (Map.Entry<Integer, Integer> entry : insertedCoins.entrySet()) {
-            total += entry.getKey() * entry.getValue();
-        }
-        return total;
+        products.computeIfAbsent(name, key -> new Product(key, 0, 0)).increaseQuantity(quantity);
     }
 
     public void initializeProducts() {
@@ -72,18 +38,28 @@ public class VendingMachine {
         products.put("MinuteMaid", new Product("MinuteMaid", 10, 0));
     }
 
-    public void rejectCoins() {
-        resetInsertedCoins();
-    }
-
-    public void purchase(String name) {
+    // Takes one unit and the session's coins together, so a wallet is never charged without a drop.
+    // Returns the amount paid, or OUT_OF_STOCK / NOT_ENOUGH_CREDIT when nothing was taken.
+    public int purchase(String name, CoinWallet wallet) {
         Product product = products.get(name);
         if (product == null) {
-            return;
+            return OUT_OF_STOCK;
         }
 
-        product.decrementQuantity();
-        resetInsertedCoins();
+        synchronized (wallet) {
+            if (product.getQuantity() <= 0) {
+                return OUT_OF_STOCK;
+            }
+            int paid = wallet.getTotal();
+            if (paid < product.getPrice()) {
+                return NOT_ENOUGH_CREDIT;
+            }
+            if (!product.tryDecrementQuantity()) {
+                return OUT_OF_STOCK;
+            }
+            wallet.reset();
+            return paid;
+        }
     }
 
     public String getProductInfo(String name) {
@@ -110,18 +86,4 @@ public class VendingMachine {
         Collections.sort(change, Collections.reverseOrder());
         return change;
     }
-
-    private void resetInsertedCoins() {
-        for (int denom : insertedCoins.keySet()) {
-            insertedCoins.put(denom, 0);
-        }
-    }
-
-    private int parseDenomination(String coinLabel) {
-        try {
-            return Integer.parseInt(coinLabel);
-        } catch (NumberFormatException ex) {
-            return -1;
-        }
-    }
 }
\ No newline at end of file